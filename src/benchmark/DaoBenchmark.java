@@ -0,0 +1,287 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import db.ConnectionPool;
+import db.DB;
+import db.DbException;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.DepartmentIdentityMap;
+import model.dao.impl.SellerDaoJDBC;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Throughput and latency benchmark of the JDBC DAOs.
+ *
+ * For every table size in {@code bench.sizes} the benchmark recreates the
+ * department and seller tables, seeds them, and runs each operation in
+ * {@code bench.operations} with every thread count in {@code bench.threads}:
+ * first a warm-up period, then a measured period whose throughput and latency
+ * percentiles are printed.
+ *
+ * The tables are dropped and recreated, so the benchmark only runs against the
+ * scratch database given by {@code bench.dburl}, never against {@code dburl}.
+ * An embedded database works as well as a server, for example
+ * {@code jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1} with the H2 jar on the
+ * classpath. Settings are read from db.properties and can be overridden with
+ * system properties ({@code -Dbench.sizes=1000,10000}).
+ */
+public class DaoBenchmark {
+
+    private static final int DEPARTMENTS = 10;
+
+    private final SellerDao sellerDao;
+    private final DepartmentDao departmentDao;
+    private final ConnectionPool pool;
+    private final long warmupMs;
+    private final long measureMs;
+
+    private List<Department> departments;
+    private int size;
+
+    public DaoBenchmark(ConnectionPool pool, long warmupMs, long measureMs) {
+        DepartmentIdentityMap identityMap = new DepartmentIdentityMap();
+        this.pool = pool;
+        this.sellerDao = new SellerDaoJDBC(pool, identityMap);
+        this.departmentDao = new DepartmentDaoJDBC(pool, identityMap);
+        this.warmupMs = warmupMs;
+        this.measureMs = measureMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Properties properties = new Properties();
+        properties.putAll(DB.getProperties());
+        properties.putAll(System.getProperties());
+
+        String url = properties.getProperty("bench.dburl");
+        if (url == null) {
+            throw new DbException("bench.dburl is not set; the benchmark drops and recreates tables, "
+                    + "point it at a scratch database");
+        }
+
+        int[] sizes = ints(properties.getProperty("bench.sizes", "1000,10000,100000"));
+        int[] threads = ints(properties.getProperty("bench.threads", "1,4,16"));
+        String[] operations = properties
+                .getProperty("bench.operations", "findById,findByDepartment,findAll,update,insert").split(",");
+        long warmupMs = Long.parseLong(properties.getProperty("bench.warmupMs", "2000"));
+        long measureMs = Long.parseLong(properties.getProperty("bench.measureMs", "5000"));
+
+        // Enough connections for the largest thread count
+        int maxThreads = Arrays.stream(threads).max().orElse(1);
+        properties.setProperty("pool.maxSize", String.valueOf(Math.max(maxThreads,
+                Integer.parseInt(properties.getProperty("pool.maxSize", "10")))));
+
+        ConnectionPool pool = new ConnectionPool(url, properties);
+        try {
+            DaoBenchmark benchmark = new DaoBenchmark(pool, warmupMs, measureMs);
+            System.out.printf("%-18s %8s %8s %12s %10s %10s %10s%n",
+                    "operation", "rows", "threads", "ops/s", "p50 us", "p99 us", "p999 us");
+
+            for (int size : sizes) {
+                benchmark.seed(size);
+                for (String operation : operations) {
+                    for (int t : threads) {
+                        Result result = benchmark.run(operation.trim(), t);
+                        System.out.printf("%-18s %8d %8d %12.1f %10.1f %10.1f %10.1f%n",
+                                operation.trim(), size, t, result.opsPerSecond,
+                                result.percentileMicros(0.50), result.percentileMicros(0.99),
+                                result.percentileMicros(0.999));
+                    }
+                }
+            }
+            System.out.println(pool.getStatementCacheStats());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Recreates the tables and fills them with {@code size} sellers spread over
+     * a fixed set of departments.
+     *
+     * @param size The number of sellers.
+     */
+    public void seed(int size) {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS seller");
+            st.executeUpdate("DROP TABLE IF EXISTS department");
+            st.executeUpdate("CREATE TABLE department ("
+                    + "Id INT NOT NULL AUTO_INCREMENT, "
+                    + "Name VARCHAR(60) DEFAULT NULL, "
+                    + "PRIMARY KEY (Id))");
+            st.executeUpdate("CREATE TABLE seller ("
+                    + "Id INT NOT NULL AUTO_INCREMENT, "
+                    + "Name VARCHAR(60) NOT NULL, "
+                    + "Email VARCHAR(100) NOT NULL, "
+                    + "BirthDate DATETIME NOT NULL, "
+                    + "BaseSalary DOUBLE NOT NULL, "
+                    + "DepartmentId INT NOT NULL, "
+                    + "PRIMARY KEY (Id), "
+                    + "FOREIGN KEY (DepartmentId) REFERENCES department (Id))");
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        }
+
+        departments = new ArrayList<>();
+        for (int i = 1; i <= DEPARTMENTS; i++) {
+            departments.add(new Department(null, "Department " + i));
+        }
+        departmentDao.insertAll(departments);
+
+        List<Seller> sellers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sellers.add(newSeller(i));
+        }
+        sellerDao.insertAll(sellers);
+        this.size = size;
+    }
+
+    /**
+     * Runs one operation with the given number of threads.
+     *
+     * @param operation The operation name.
+     * @param threads   The number of concurrent callers.
+     * @return The measured throughput and latencies.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    public Result run(String operation, int threads) throws InterruptedException {
+        Runnable op = operation(operation);
+
+        // Warm up the JIT, the pool and the statement caches first
+        measure(op, threads, warmupMs);
+        return measure(op, threads, measureMs);
+    }
+
+    private Runnable operation(String name) {
+        switch (name) {
+            case "findById":
+                return () -> sellerDao.findById(randomId());
+            case "findByDepartment":
+                return () -> sellerDao.findByDepartment(randomDepartment());
+            case "findAll":
+                return sellerDao::findAll;
+            case "update":
+                return () -> {
+                    Seller obj = newSeller(ThreadLocalRandom.current().nextInt(size));
+                    obj.setId(randomId());
+                    sellerDao.update(obj);
+                };
+            case "insert":
+                return () -> sellerDao.insert(newSeller(ThreadLocalRandom.current().nextInt(size)));
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + name);
+        }
+    }
+
+    private Result measure(Runnable op, int threads, long durationMs) throws InterruptedException {
+        long[][] samples = new long[threads][];
+        int[] counts = new int[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                long[] latencies = new long[1 << 16];
+                int n = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long end = System.nanoTime() + durationMs * 1_000_000L;
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    op.run();
+                    if (n == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, n * 2);
+                    }
+                    latencies[n++] = System.nanoTime() - now;
+                }
+                samples[index] = latencies;
+                counts[index] = n;
+            }, "bench-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        int total = 0;
+        for (int c : counts) {
+            total += c;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (int t = 0; t < threads; t++) {
+            // A worker that died on an exception left no samples
+            if (samples[t] != null) {
+                System.arraycopy(samples[t], 0, all, pos, counts[t]);
+                pos += counts[t];
+            }
+        }
+        Arrays.sort(all);
+        return new Result(total * 1e9 / elapsed, all);
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    private Department randomDepartment() {
+        return departments.get(ThreadLocalRandom.current().nextInt(departments.size()));
+    }
+
+    private Seller newSeller(int i) {
+        return new Seller(null, "Seller " + i, "seller" + i + "@example.com", new Date(),
+                1000.0 + (i % 5000), departments.get(i % departments.size()));
+    }
+
+    private static int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Throughput and sorted latency samples of one measured run.
+     */
+    public static class Result {
+
+        private final double opsPerSecond;
+        private final long[] sortedLatencies;
+
+        Result(double opsPerSecond, long[] sortedLatencies) {
+            this.opsPerSecond = opsPerSecond;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        public double percentileMicros(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1_000.0;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import db.ConnectionPool;
+import db.DB;
+import db.DbException;
+import db.ReplicaDataSource;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.DepartmentIdentityMap;
+import model.entities.Department;
+
+/**
+ * Checks the read/write routing of {@link ReplicaDataSource} against two local
+ * database instances standing in for a primary and a replica.
+ *
+ * Both instances get a department table whose row 1 is named after the
+ * instance, so every read shows which one served it. The checks cover reads
+ * going to the replica, writes and write-scope reads going to the primary, an
+ * exhausted replica being passed over without waiting for its connection
+ * timeout, and an unreachable replica being skipped for its backoff window
+ * instead of being retried on every read.
+ *
+ * The tables are dropped and recreated, so point {@code test.primaryUrl} and
+ * {@code test.replicaUrl} at scratch databases, for example
+ * {@code jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1} and
+ * {@code jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1} with the H2 jar on
+ * the classpath. {@code test.deadReplicaUrl} must not be reachable. Settings are
+ * read from db.properties and can be overridden with system properties. The
+ * process exits with status 1 if any check fails.
+ */
+public class ReplicaRoutingTest {
+
+    private final Properties properties;
+    private final String primaryUrl;
+    private final String replicaUrl;
+    private final String deadReplicaUrl;
+    private final List<String> failures = new ArrayList<>();
+
+    public ReplicaRoutingTest(Properties properties) {
+        this.properties = properties;
+        this.primaryUrl = required(properties, "test.primaryUrl");
+        this.replicaUrl = required(properties, "test.replicaUrl");
+        this.deadReplicaUrl = properties.getProperty("test.deadReplicaUrl",
+                "jdbc:mysql://127.0.0.1:1/unreachable?connectTimeout=500");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Properties properties = new Properties();
+        properties.putAll(DB.getProperties());
+        properties.putAll(System.getProperties());
+
+        ReplicaRoutingTest test = new ReplicaRoutingTest(properties);
+        test.setUp();
+        test.readsGoToReplica();
+        test.writesGoToPrimary();
+        test.writeScopeReadsGoToPrimary();
+        test.exhaustedReplicaIsPassedOverAtOnce();
+        test.unreachableReplicaIsSkippedDuringBackoff();
+
+        if (!test.failures.isEmpty()) {
+            System.out.println(test.failures.size() + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * Recreates the department table on both instances, with row 1 named after
+     * the instance.
+     */
+    public void setUp() {
+        seed(primaryUrl, "primary");
+        seed(replicaUrl, "replica");
+    }
+
+    public void readsGoToReplica() throws SQLException {
+        ConnectionPool primary = pool(primaryUrl, 2, 30_000);
+        ConnectionPool replica = pool(replicaUrl, 2, 30_000);
+        ReplicaDataSource router = router(primary, replica, 5_000);
+        try {
+            check("readsGoToReplica", "replica".equals(instanceOf(router)),
+                    "a plain read was not served by the replica");
+
+            DepartmentDaoJDBC dao = new DepartmentDaoJDBC(primary, router, new DepartmentIdentityMap());
+            Department dep = dao.findById(1);
+            check("readsGoToReplica (DAO)", dep != null && "replica".equals(dep.getName()),
+                    "DepartmentDao.findById read " + dep + " instead of the replica's row");
+        } finally {
+            router.close();
+            primary.close();
+        }
+    }
+
+    public void writesGoToPrimary() throws SQLException {
+        ConnectionPool primary = pool(primaryUrl, 2, 30_000);
+        ConnectionPool replica = pool(replicaUrl, 2, 30_000);
+        ReplicaDataSource router = router(primary, replica, 5_000);
+        try {
+            DepartmentDaoJDBC dao = new DepartmentDaoJDBC(primary, router, new DepartmentIdentityMap());
+            dao.insert(new Department(null, "written"));
+
+            check("writesGoToPrimary", countWritten(primary) == 1 && countWritten(replica) == 0,
+                    "the insert did not land on the primary only");
+        } finally {
+            router.close();
+            primary.close();
+        }
+    }
+
+    public void writeScopeReadsGoToPrimary() throws SQLException {
+        ConnectionPool primary = pool(primaryUrl, 2, 30_000);
+        ConnectionPool replica = pool(replicaUrl, 2, 30_000);
+        ReplicaDataSource router = router(primary, replica, 5_000);
+        try {
+            ReplicaDataSource.beginWriteScope();
+            try {
+                check("writeScopeReadsGoToPrimary", "primary".equals(instanceOf(router)),
+                        "a read inside a write scope was not served by the primary");
+            } finally {
+                ReplicaDataSource.endWriteScope();
+            }
+            check("writeScopeReadsGoToPrimary (after)", "replica".equals(instanceOf(router)),
+                    "reads did not return to the replica after the write scope");
+        } finally {
+            router.close();
+            primary.close();
+        }
+    }
+
+    public void exhaustedReplicaIsPassedOverAtOnce() throws SQLException {
+        ConnectionPool primary = pool(primaryUrl, 2, 30_000);
+        // One connection and a long timeout: a blocking borrow would wait 30s
+        ConnectionPool replica = pool(replicaUrl, 1, 30_000);
+        ReplicaDataSource router = router(primary, replica, 5_000);
+        Connection held = replica.getConnection();
+        try {
+            long start = System.nanoTime();
+            String instance = instanceOf(router);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            check("exhaustedReplicaIsPassedOverAtOnce", "primary".equals(instance) && elapsedMs < 1_000,
+                    "read took " + elapsedMs + "ms and was served by " + instance);
+            check("exhaustedReplicaIsPassedOverAtOnce (health)", router.isHealthy(0),
+                    "a busy replica was marked unhealthy");
+        } finally {
+            DB.closeConnection(held);
+            router.close();
+            primary.close();
+        }
+    }
+
+    public void unreachableReplicaIsSkippedDuringBackoff() throws Exception {
+        ConnectionPool primary = pool(primaryUrl, 2, 30_000);
+        ConnectionPool dead = pool(deadReplicaUrl, 2, 30_000);
+        ConnectionPool replica = pool(replicaUrl, 2, 30_000);
+        List<ConnectionPool> replicas = new ArrayList<>();
+        replicas.add(dead);
+        replicas.add(replica);
+        ReplicaDataSource router = new ReplicaDataSource(primary, replicas,
+                ReplicaDataSource.Balancing.ROUND_ROBIN, 0, 500);
+        try {
+            boolean allFromReplica = true;
+            for (int i = 0; i < 10; i++) {
+                allFromReplica &= "replica".equals(instanceOf(router));
+            }
+            check("unreachableReplicaIsSkippedDuringBackoff", allFromReplica,
+                    "reads were not served by the reachable replica");
+            check("unreachableReplicaIsSkippedDuringBackoff (attempts)", dead.getConnectionWaitCount() == 1,
+                    "the unreachable replica was tried " + dead.getConnectionWaitCount() + " times, expected 1");
+            check("unreachableReplicaIsSkippedDuringBackoff (health)", !router.isHealthy(0),
+                    "the unreachable replica was not marked unhealthy");
+
+            // Once the window has passed the replica gets another chance
+            Thread.sleep(600);
+            for (int i = 0; i < 2; i++) {
+                instanceOf(router);
+            }
+            check("unreachableReplicaIsSkippedDuringBackoff (retry)", dead.getConnectionWaitCount() == 2,
+                    "the unreachable replica was tried " + dead.getConnectionWaitCount()
+                            + " times after the backoff, expected 2");
+        } finally {
+            router.close();
+            primary.close();
+        }
+    }
+
+    private void check(String name, boolean passed, String message) {
+        if (passed) {
+            System.out.println("PASS " + name);
+        } else {
+            System.out.println("FAIL " + name + ": " + message);
+            failures.add(name);
+        }
+    }
+
+    private ConnectionPool pool(String url, int maxSize, long connectionTimeoutMs) {
+        Properties props = new Properties();
+        props.putAll(properties);
+        // No background connects, so every connection attempt is one the router made
+        props.setProperty("pool.minSize", "0");
+        props.setProperty("pool.maxSize", String.valueOf(maxSize));
+        props.setProperty("pool.connectionTimeoutMs", String.valueOf(connectionTimeoutMs));
+        props.setProperty("slowlog.enabled", "false");
+        return new ConnectionPool(url, props);
+    }
+
+    private ReplicaDataSource router(ConnectionPool primary, ConnectionPool replica, long backoffMs) {
+        List<ConnectionPool> replicas = new ArrayList<>();
+        replicas.add(replica);
+        return new ReplicaDataSource(primary, replicas, ReplicaDataSource.Balancing.ROUND_ROBIN, 0, backoffMs);
+    }
+
+    private void seed(String url, String instance) {
+        ConnectionPool pool = pool(url, 1, 30_000);
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP TABLE IF EXISTS seller");
+            st.executeUpdate("DROP TABLE IF EXISTS department");
+            st.executeUpdate("CREATE TABLE department ("
+                    + "Id INT NOT NULL AUTO_INCREMENT, "
+                    + "Name VARCHAR(60) DEFAULT NULL, "
+                    + "PRIMARY KEY (Id))");
+            st.executeUpdate("INSERT INTO department (Name) VALUES ('" + instance + "')");
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            pool.close();
+        }
+    }
+
+    // The name of row 1 as seen through the data source, which tells the instance apart
+    private static String instanceOf(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement("SELECT Name FROM department WHERE Id = 1");
+                ResultSet rs = st.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private static int countWritten(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+                PreparedStatement st = conn.prepareStatement("SELECT COUNT(*) FROM department WHERE Name = 'written'");
+                ResultSet rs = st.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new DbException(key + " is not set; the test drops and recreates tables, "
+                    + "point it at a scratch database");
+        }
+        return value.trim();
+    }
+}
@@ -0,0 +1,67 @@
+package db;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss/eviction counters of a cache, such as the prepared statement caches
+ * of a pool or the department cache.
+ *
+ * The counters are adders, so recording from many threads never contends and
+ * a read returns a live, not necessarily atomic, sum.
+ */
+public class CacheStats {
+
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates zeroed counters.
+     *
+     * @param name The name of the cache, shown by {@link #toString()}.
+     */
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+                + ", hitRatio=" + getHitRatio() + "]";
+    }
+}
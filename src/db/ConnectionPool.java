@@ -0,0 +1,682 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A bounded pool of physical JDBC connections exposed as a {@link DataSource}.
+ *
+ * Connections handed out by {@link #getConnection()} are proxies: calling
+ * {@code close()} on them returns the physical connection to the pool instead
+ * of closing the socket. The pool keeps between {@code minSize} and
+ * {@code maxSize} physical connections, validates idle connections before
+ * handing them out, evicts connections that stayed idle for too long and can
+ * report connections that were borrowed but never returned, as warnings of the
+ * {@code db.ConnectionPool} java.util.logging logger.
+ *
+ * Each physical connection also owns a {@link StatementCache}, so preparing
+ * the same SQL twice on one connection reuses the statement prepared the
+ * first time. When {@code slowlog.enabled} is true, prepared statements are
+ * additionally traced by a {@link SlowQueryLog}.
+ */
+public class ConnectionPool implements DataSource, ConnectionPoolMXBean {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final Properties driverProperties;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final int validationTimeoutSeconds;
+    private final long validationIntervalMs;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+    private final CacheStats statementCacheStats = new CacheStats("StatementCache");
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private final SlowQueryLog slowQueryLog;
+    private final boolean ownsSlowQueryLog;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private int totalConnections = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService housekeeper;
+
+    private PrintWriter logWriter;
+
+    /**
+     * Creates a pool for the given JDBC URL.
+     *
+     * @param url        The JDBC URL of the database.
+     * @param properties The driver properties (user, password, ...) merged with
+     *                   the pool settings. Keys starting with {@code pool.} are
+     *                   read by the pool and never forwarded to the driver.
+     */
+    public ConnectionPool(String url, Properties properties) {
+        this(url, properties, null);
+    }
+
+    /**
+     * Creates a pool for the given JDBC URL that traces its statements into an
+     * existing slow query log, for example the one of the primary's pool, instead
+     * of opening its own.
+     *
+     * @param url          The JDBC URL of the database.
+     * @param properties   The driver properties merged with the pool settings.
+     * @param slowQueryLog The log to share, or null to open one when
+     *                     {@code slowlog.enabled} is true. A shared log is not
+     *                     closed with this pool.
+     */
+    public ConnectionPool(String url, Properties properties, SlowQueryLog slowQueryLog) {
+        this.url = url;
+        this.driverProperties = new Properties();
+        for (String key : properties.stringPropertyNames()) {
+            // Namespaced keys (pool.*, dao.*, ...) belong to the application, not the driver
+            if (!key.contains(".")) {
+                driverProperties.setProperty(key, properties.getProperty(key));
+            }
+        }
+
+        this.minSize = intProperty(properties, "pool.minSize", 2);
+        this.maxSize = Math.max(1, intProperty(properties, "pool.maxSize", 10));
+        this.connectionTimeoutMs = longProperty(properties, "pool.connectionTimeoutMs", 30_000L);
+        this.idleTimeoutMs = longProperty(properties, "pool.idleTimeoutMs", 600_000L);
+        this.validationTimeoutSeconds = intProperty(properties, "pool.validationTimeoutSeconds", 5);
+        this.validationIntervalMs = longProperty(properties, "pool.validationIntervalMs", 500L);
+        this.leakDetectionThresholdMs = longProperty(properties, "pool.leakDetectionThresholdMs", 0L);
+        this.statementCacheSize = intProperty(properties, "pool.statementCacheSize", 64);
+
+        if (minSize > maxSize) {
+            throw new DbException("pool.minSize (" + minSize + ") is greater than pool.maxSize (" + maxSize + ")");
+        }
+        if (slowQueryLog != null) {
+            this.slowQueryLog = slowQueryLog;
+            this.ownsSlowQueryLog = false;
+        } else {
+            this.slowQueryLog = Boolean.parseBoolean(properties.getProperty("slowlog.enabled"))
+                    ? new SlowQueryLog(properties)
+                    : null;
+            this.ownsSlowQueryLog = true;
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000L, Math.min(30_000L, idleTimeoutMs / 2));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to
+     * {@code pool.connectionTimeoutMs} when every connection is in use, or less
+     * if the thread's {@link Deadline} comes first.
+     *
+     * @return A pooled connection; close it to give it back to the pool.
+     * @throws SQLException       If no connection became available in time or a
+     *                            new physical connection could not be opened.
+     * @throws DbTimeoutException If the current deadline passed before a
+     *                            connection became available.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(connectionTimeoutMs);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting at most {@code maxWaitMs} when
+     * every connection is in use, or less if the thread's {@link Deadline} comes
+     * first. With 0 the call never waits for another borrower, which lets a
+     * caller with alternatives, such as {@link ReplicaDataSource}, move on to the
+     * next pool at once.
+     *
+     * @param maxWaitMs How long to wait for a connection to be returned.
+     * @return A pooled connection; close it to give it back to the pool.
+     * @throws SQLTransientConnectionException If every connection stayed in use
+     *                                         for {@code maxWaitMs}.
+     * @throws SQLException                    If a new physical connection could
+     *                                         not be opened.
+     * @throws DbTimeoutException              If the current deadline passed
+     *                                         before a connection became
+     *                                         available.
+     */
+    public Connection getConnection(long maxWaitMs) throws SQLException {
+        Deadline deadline = Deadline.current();
+        long timeoutMs = Math.max(0, maxWaitMs);
+        if (deadline != null) {
+            deadline.check("borrowing a connection");
+            timeoutMs = Math.min(timeoutMs, Math.max(1, deadline.remainingMillis()));
+        }
+
+        long start = System.nanoTime();
+        try {
+            return borrow(timeoutMs);
+        } catch (SQLTransientConnectionException e) {
+            if (deadline != null && deadline.isExpired()) {
+                throw new DbTimeoutException("Deadline exceeded while waiting for a connection", e);
+            }
+            throw e;
+        } finally {
+            connectionWait.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use the configured credentials");
+    }
+
+    private Connection borrow(long timeoutMs) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (candidate == null && !create) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        // Most recently returned connection first, it is the most likely to be alive
+                        candidate = idle.pollFirst();
+                    } else if (totalConnections < maxSize) {
+                        totalConnections++;
+                        create = true;
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new SQLTransientConnectionException("Timeout after " + timeoutMs
+                                    + "ms waiting for a connection (pool size " + maxSize + ", all in use)");
+                        }
+                        try {
+                            available.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLTransientConnectionException("Interrupted while waiting for a connection");
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = newPooledConnection();
+                } catch (SQLException | RuntimeException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!validate(candidate)) {
+                // Broken idle connection, drop it and try the next one
+                destroy(candidate);
+                continue;
+            }
+
+            return checkOut(candidate);
+        }
+    }
+
+    private PooledConnection newPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, driverProperties);
+        StatementCache cache = statementCacheSize > 0
+                ? new StatementCache(physical, statementCacheSize, statementCacheStats)
+                : null;
+        return new PooledConnection(physical, cache);
+    }
+
+    private boolean validate(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastUsed < validationIntervalMs) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection checkOut(PooledConnection pc) {
+        pc.borrowedAt = System.currentTimeMillis();
+        pc.borrowSite = leakDetectionThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+        borrowed.add(pc);
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(pc));
+    }
+
+    /**
+     * Gives a physical connection back to the pool after resetting the session
+     * state a previous borrower may have changed.
+     */
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        boolean reusable;
+        try {
+            reusable = !pc.physical.isClosed();
+            if (reusable && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (reusable && pc.physical.isReadOnly()) {
+                pc.physical.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (!reusable) {
+            destroy(pc);
+            return;
+        }
+
+        pc.lastUsed = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (closed) {
+                totalConnections--;
+                closeQuietly(pc);
+                return;
+            }
+            idle.offerFirst(pc);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        closeQuietly(pc);
+        discardSlot();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        if (pc.statementCache != null) {
+            pc.statementCache.clear();
+        }
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            // The connection is being thrown away anyway
+        }
+    }
+
+    /**
+     * Periodic maintenance: evicts connections idle for longer than
+     * {@code pool.idleTimeoutMs} (never going below {@code pool.minSize}), tops
+     * the pool back up to {@code pool.minSize} and reports leaked connections.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Oldest idle connections sit at the tail of the deque
+            while (totalConnections > minSize && !idle.isEmpty()
+                    && now - idle.peekLast().lastUsed > idleTimeoutMs) {
+                closeQuietly(idle.pollLast());
+                totalConnections--;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        fillToMinimum();
+
+        if (leakDetectionThresholdMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakDetectionThresholdMs) {
+                    pc.leakReported = true;
+                    // The stack trace of the borrow site shows who took the connection
+                    log.log(Level.WARNING, "Possible connection leak: connection held for "
+                            + (now - pc.borrowedAt) + "ms", pc.borrowSite);
+                }
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || totalConnections >= minSize) {
+                    return;
+                }
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                PooledConnection pc = newPooledConnection();
+                lock.lock();
+                try {
+                    idle.offerLast(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                // Database unreachable right now, retry on the next run
+                discardSlot();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the pool. Connections that are still
+     * borrowed are closed when they are returned.
+     */
+    public void close() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            while (!idle.isEmpty()) {
+                closeQuietly(idle.pollFirst());
+                totalConnections--;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (slowQueryLog != null && ownsSlowQueryLog) {
+            slowQueryLog.close();
+        }
+    }
+
+    /**
+     * Returns the prepared statement cache counters summed over every
+     * connection of this pool.
+     *
+     * @return The live statistics object.
+     */
+    public CacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    /**
+     * Returns the slow query log statements are traced into.
+     *
+     * @return The log, or null when slow query logging is disabled.
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Returns how long callers of {@link #getConnection()} waited, including the
+     * time to open or validate the connection they got.
+     *
+     * @return The live histogram of borrow times.
+     */
+    public LatencyHistogram getConnectionWaitHistogram() {
+        return connectionWait;
+    }
+
+    @Override
+    public long getConnectionWaitCount() {
+        return connectionWait.getCount();
+    }
+
+    @Override
+    public double getConnectionWaitP50Micros() {
+        return connectionWait.getPercentileNanos(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getConnectionWaitP99Micros() {
+        return connectionWait.getPercentileNanos(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getConnectionWaitMaxMicros() {
+        return connectionWait.getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        return statementCacheStats.getHitRatio();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return totalConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return log;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProperty(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * A physical connection together with the bookkeeping the pool needs.
+     */
+    private static final class PooledConnection {
+
+        final Connection physical;
+        final StatementCache statementCache;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Exception borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /**
+     * Backs the proxy handed to one borrower. Once closed, the proxy refuses
+     * further use so a stale reference cannot touch a connection that now
+     * belongs to someone else.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final PooledConnection pc;
+        private boolean returned = false;
+
+        ConnectionHandler(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                return prepare(proxy, method, args);
+            }
+            return invokePhysical(method, args);
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Prepares a statement through the cache when possible, and wraps it to
+         * enforce the current deadline and for the slow query log when those
+         * apply.
+         */
+        private Object prepare(Object proxy, Method method, Object[] args) throws Throwable {
+            long start = slowQueryLog != null ? System.nanoTime() : 0L;
+            PreparedStatement st = pc.statementCache != null ? prepareCached(proxy, method, args) : null;
+            if (st == null) {
+                st = (PreparedStatement) invokePhysical(method, args);
+            }
+            Deadline deadline = Deadline.current();
+            if (deadline != null) {
+                st = DeadlineStatement.wrap(st, deadline, (String) args[0]);
+            }
+            if (slowQueryLog != null) {
+                return slowQueryLog.trace(st, (String) args[0], System.nanoTime() - start);
+            }
+            return st;
+        }
+
+        /**
+         * Serves the prepareStatement overloads the cache understands; returns
+         * null for the others so they go straight to the driver.
+         */
+        private PreparedStatement prepareCached(Object proxy, Method method, Object[] args) throws SQLException {
+            Class<?>[] types = method.getParameterTypes();
+            String sql = (String) args[0];
+            Connection logical = (Connection) proxy;
+            if (types.length == 1) {
+                return pc.statementCache.prepare(logical, sql, Statement.NO_GENERATED_KEYS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            if (types.length == 2 && types[1] == int.class) {
+                return pc.statementCache.prepare(logical, sql, (Integer) args[1],
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            if (types.length == 3) {
+                return pc.statementCache.prepare(logical, sql, Statement.NO_GENERATED_KEYS,
+                        (Integer) args[1], (Integer) args[2]);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package db;
+
+/**
+ * JMX view of a {@link ConnectionPool}.
+ */
+public interface ConnectionPoolMXBean {
+
+    int getMaxSize();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    long getConnectionWaitCount();
+
+    double getConnectionWaitP50Micros();
+
+    double getConnectionWaitP99Micros();
+
+    double getConnectionWaitMaxMicros();
+
+    double getStatementCacheHitRatio();
+
+}
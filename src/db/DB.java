@@ -3,40 +3,124 @@ package db;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import javax.sql.DataSource;
+
 public class DB {
 
-    private static Connection conn = null;
+    private static ConnectionPool dataSource = null;
+    private static ReplicaDataSource readDataSource = null;
+    private static Properties properties = null;
 
-    public static Connection getConnection() {
-        if (conn == null) {
-            try {
-                Properties properties = loadProperties();
-                String url = properties.getProperty("dburl");
-                conn = DriverManager.getConnection(url, properties);
-            } catch (SQLException e) {
-                throw new DbException(e.getMessage());
+    /**
+     * Returns the shared connection pool, creating it on first use from the
+     * settings in db.properties.
+     *
+     * @return The pooled DataSource used by the DAOs.
+     */
+    public static synchronized DataSource getDataSource() {
+        if (dataSource == null) {
+            Properties props = getProperties();
+            String url = props.getProperty("dburl");
+            dataSource = new ConnectionPool(url, props);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Returns the data source for read-only work. When {@code replica.urls}
+     * lists replica JDBC URLs (comma separated), connections are spread over one
+     * pool per replica according to {@code replica.balancing}
+     * ({@code roundRobin} or {@code leastLoaded}); reads made inside a write
+     * scope, and reads when no replica is reachable, go to the primary. A busy
+     * replica is skipped after {@code replica.borrowTimeoutMs} (0 by default) and
+     * one that fails to connect is skipped for {@code replica.backoffMs}. Without
+     * replicas this is the same pool as {@link #getDataSource()}.
+     *
+     * @return The DataSource the DAOs read through.
+     */
+    public static synchronized DataSource getReadDataSource() {
+        ConnectionPool primary = (ConnectionPool) getDataSource();
+        if (readDataSource == null) {
+            Properties props = getProperties();
+            List<ConnectionPool> replicas = new ArrayList<>();
+            for (String url : props.getProperty("replica.urls", "").split(",")) {
+                if (!url.trim().isEmpty()) {
+                    // Replicas share the primary's slow query log instead of each writing their own
+                    replicas.add(new ConnectionPool(url.trim(), props, primary.getSlowQueryLog()));
+                }
             }
+            readDataSource = new ReplicaDataSource(primary, replicas,
+                    ReplicaDataSource.Balancing.parse(props.getProperty("replica.balancing")),
+                    Long.parseLong(props.getProperty("replica.borrowTimeoutMs", "0").trim()),
+                    Long.parseLong(props.getProperty("replica.backoffMs",
+                            String.valueOf(ReplicaDataSource.DEFAULT_BACKOFF_MS)).trim()));
+        }
+        return readDataSource.getReplicas().isEmpty() ? primary : readDataSource;
+    }
+
+    /**
+     * Borrows a connection from the shared pool. The caller must hand it back
+     * with {@link #closeConnection(Connection)} once it is done.
+     *
+     * @return A pooled connection.
+     * @throws DbException If no connection could be obtained.
+     */
+    public static Connection getConnection() {
+        try {
+            return getDataSource().getConnection();
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
         }
-        return conn;
     }
 
-    public static void closeConnection() {
+    /**
+     * Returns a borrowed connection to the pool.
+     *
+     * @param conn The connection to return; ignored when null.
+     */
+    public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
                 conn.close();
             } catch (SQLException e) {
-                throw new DbException(e.getMessage());
+                throw new DbException(e.getMessage(), e);
             }
-            conn = null;
         }
     }
 
+    /**
+     * Shuts the shared pools down and closes their idle connections.
+     */
+    public static synchronized void closeDataSource() {
+        if (readDataSource != null) {
+            readDataSource.close();
+            readDataSource = null;
+        }
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    /**
+     * Returns the settings loaded from db.properties.
+     *
+     * @return The properties, loaded once and shared.
+     */
+    public static synchronized Properties getProperties() {
+        if (properties == null) {
+            properties = loadProperties();
+        }
+        return properties;
+    }
+
     private static Properties loadProperties() {
         try (FileInputStream fs = new FileInputStream("db.properties")) {
             Properties properties = new Properties();
@@ -44,7 +128,7 @@ public class DB {
             return properties;
 
         } catch (IOException e) {
-            throw new DbException(e.getMessage());
+            throw new DbException(e.getMessage(), e);
         }
     }
 
@@ -53,7 +137,7 @@ public class DB {
             try {
                 stmt.close();
             } catch (SQLException e) {
-                throw new DbException(e.getMessage());
+                throw new DbException(e.getMessage(), e);
             }
         }
     }
@@ -63,7 +147,7 @@ public class DB {
             try {
                 rs.close();
             } catch (SQLException e) {
-                throw new DbException(e.getMessage());
+                throw new DbException(e.getMessage(), e);
             }
         }
     }
@@ -1,7 +1,28 @@
 package db;
 
+import java.sql.SQLException;
+
 public class DbException extends RuntimeException {
     public DbException(String message) {
         super(message);
     }
+
+    public DbException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Returns the SQLState of the SQLException that caused this exception.
+     *
+     * @return The SQLState, or null when the cause is not a SQLException or
+     *         carries no state.
+     */
+    public String getSQLState() {
+        for (Throwable t = getCause(); t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return ((SQLException) t).getSQLState();
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,17 @@
+package db;
+
+/**
+ * Thrown when a database call runs out of time: its {@link Deadline} expired
+ * while waiting for a pooled connection, or the statement was cancelled or
+ * timed out by the driver because it overran the deadline.
+ */
+public class DbTimeoutException extends DbException {
+
+    public DbTimeoutException(String message) {
+        super(message);
+    }
+
+    public DbTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,184 @@
+package db;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A point in time by which a database call must finish.
+ *
+ * A deadline is made current for the calling thread with {@link #enter()} (or
+ * {@link #call(Supplier)}); while it is current, every DAO call borrowing from
+ * a {@link ConnectionPool} waits for a connection at most until the deadline,
+ * and every statement it executes gets a query timeout from the remaining time
+ * and is cancelled once the deadline passes. Either case is reported as a
+ * {@link DbTimeoutException}.
+ *
+ * <pre>
+ * try (Deadline.Scope scope = Deadline.within(200, TimeUnit.MILLISECONDS)) {
+ *     sellerDao.findByDepartment(dep);
+ * }
+ * </pre>
+ *
+ * Scopes nest: an inner deadline later than the outer one is capped to the
+ * outer one, so a callee can never extend its caller's budget.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Returns a deadline the given amount of time from now.
+     *
+     * @param timeout The time budget.
+     * @param unit    The unit of {@code timeout}.
+     * @return The deadline.
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Makes a deadline the given amount of time from now current for this thread.
+     *
+     * @param timeout The time budget.
+     * @param unit    The unit of {@code timeout}.
+     * @return The scope to close when the calls it covers are done.
+     */
+    public static Scope within(long timeout, TimeUnit unit) {
+        return after(timeout, unit).enter();
+    }
+
+    /**
+     * Returns the deadline current for this thread.
+     *
+     * @return The deadline, or null when calls are not time-limited.
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Makes this deadline current for this thread, or keeps the current one if
+     * it is earlier.
+     *
+     * @return The scope to close to restore the previous deadline.
+     */
+    public Scope enter() {
+        Deadline previous = current.get();
+        Deadline effective = previous != null && previous.deadlineNanos - deadlineNanos < 0 ? previous : this;
+        current.set(effective);
+        return new Scope(previous);
+    }
+
+    /**
+     * Runs a call with this deadline current.
+     *
+     * @param call The call to run.
+     * @return What the call returned.
+     */
+    public <T> T call(Supplier<T> call) {
+        Scope scope = enter();
+        try {
+            return call.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Runs a call with this deadline current.
+     *
+     * @param call The call to run.
+     */
+    public void run(Runnable call) {
+        Scope scope = enter();
+        try {
+            call.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Throws if this deadline has passed.
+     *
+     * @param what What was about to start, for the exception message.
+     * @throws DbTimeoutException If the deadline has passed.
+     */
+    public void check(String what) {
+        long remaining = remainingNanos();
+        if (remaining <= 0) {
+            throw new DbTimeoutException("Deadline exceeded by "
+                    + TimeUnit.NANOSECONDS.toMillis(-remaining) + "ms before " + what);
+        }
+    }
+
+    /**
+     * Translates an error raised while reading rows of a statement executed
+     * under a deadline. The statement's timer keeps running until it is closed,
+     * so once the deadline has passed the error is most likely its cancel and
+     * is reported as a timeout.
+     *
+     * @param deadline The deadline current when the statement was executed, or
+     *                 null.
+     * @param e        The error.
+     * @return A {@link DbTimeoutException} if the deadline has passed, a plain
+     *         {@link DbException} otherwise.
+     */
+    public static DbException failure(Deadline deadline, SQLException e) {
+        if (deadline != null && deadline.isExpired()) {
+            return new DbTimeoutException("Deadline exceeded while reading rows: " + e.getMessage(), e);
+        }
+        return new DbException(e.getMessage(), e);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline [remainingMs=" + remainingMillis() + "]";
+    }
+
+    /**
+     * Restores the previously current deadline when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Deadline previous;
+        private boolean closed = false;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a {@link Deadline} on a prepared statement.
+ *
+ * Before each execution the remaining time becomes the statement's query
+ * timeout (rounded up to whole seconds, the JDBC granularity) and a timer is
+ * armed to {@code cancel()} the statement at the exact deadline. The timer
+ * stays armed until the statement is closed, so reading a streamed result set
+ * is bounded too. A statement that times out or is cancelled this way fails
+ * with a {@link DbTimeoutException}.
+ */
+final class DeadlineStatement implements InvocationHandler {
+
+    private static final ScheduledThreadPoolExecutor canceller = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "db-statement-canceller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        // Most timers are disarmed long before they fire, do not keep them queued
+        canceller.setRemoveOnCancelPolicy(true);
+    }
+
+    private final PreparedStatement st;
+    private final Deadline deadline;
+    private final String sql;
+    private ScheduledFuture<?> timer;
+    private volatile boolean cancelled = false;
+
+    private DeadlineStatement(PreparedStatement st, Deadline deadline, String sql) {
+        this.st = st;
+        this.deadline = deadline;
+        this.sql = sql;
+    }
+
+    /**
+     * Wraps a statement so its executions respect a deadline.
+     *
+     * @param st       The statement.
+     * @param deadline The deadline current when it was prepared.
+     * @param sql      Its SQL text, for error messages.
+     * @return The wrapped statement.
+     */
+    static PreparedStatement wrap(PreparedStatement st, Deadline deadline, String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                DeadlineStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new DeadlineStatement(st, deadline, sql));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "execute":
+            case "executeBatch":
+            case "executeLargeBatch":
+                return execute(method, args);
+            case "close":
+                disarm();
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        return invokeDelegate(method, args);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        deadline.check("executing " + sql);
+        long remaining = deadline.remainingNanos();
+
+        st.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+        disarm();
+        cancelled = false;
+        timer = canceller.schedule(this::cancel, remaining, TimeUnit.NANOSECONDS);
+
+        try {
+            return invokeDelegate(method, args);
+        } catch (SQLTimeoutException e) {
+            throw new DbTimeoutException("Query timed out at its deadline: " + sql, e);
+        } catch (SQLException e) {
+            if (cancelled) {
+                throw new DbTimeoutException("Query cancelled at its deadline: " + sql, e);
+            }
+            throw e;
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        try {
+            st.cancel();
+        } catch (SQLException e) {
+            // The statement finished or was closed in the meantime
+        }
+    }
+
+    private void disarm() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(st, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package db;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link DataSource} for read-only work that spreads connections over a set of
+ * replica pools.
+ *
+ * Each {@link #getConnection()} picks a replica, either in turn
+ * ({@link Balancing#ROUND_ROBIN}) or the one with the fewest borrowed
+ * connections ({@link Balancing#LEAST_LOADED}). A replica that cannot hand out
+ * a connection is skipped, and the primary is used when none can.
+ *
+ * Replicas are borrowed from without waiting (or for at most
+ * {@code borrowTimeoutMs}), so a replica whose pool is exhausted is passed over
+ * immediately instead of after the pool's full connection timeout. A replica
+ * that fails to open a connection is marked unhealthy and skipped for
+ * {@code backoffMs}, so while it is down reads do not each pay a failed connect;
+ * the first read after the window tries it again.
+ *
+ * While the current thread is inside a write scope (see
+ * {@link #beginWriteScope()}) every connection comes from the primary instead,
+ * so reads made as part of a write transaction see the primary's data rather
+ * than a replica that may lag behind.
+ */
+public class ReplicaDataSource implements DataSource {
+
+    /**
+     * How a replica is chosen for each connection.
+     */
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_LOADED;
+
+        /**
+         * Parses {@code roundRobin} / {@code leastLoaded} (any case, with or
+         * without underscores).
+         *
+         * @param value The configured value, or null for round robin.
+         * @return The balancing strategy.
+         */
+        public static Balancing parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return ROUND_ROBIN;
+            }
+            String normalized = value.trim().replace("_", "").replace("-", "");
+            for (Balancing b : values()) {
+                if (b.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return b;
+                }
+            }
+            throw new DbException("Unknown replica balancing: " + value);
+        }
+    }
+
+    public static final long DEFAULT_BACKOFF_MS = 5_000L;
+
+    // Nesting depth of the write scopes opened by the current thread; no entry means 0, so
+    // threads that only read never get one
+    private static final ThreadLocal<int[]> writeDepth = new ThreadLocal<>();
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final Balancing balancing;
+    private final long borrowTimeoutMs;
+    private final long backoffNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Per replica, the System.nanoTime() until which it is skipped; 0 when healthy
+    private final AtomicLongArray unhealthyUntil;
+
+    /**
+     * Creates a routing data source.
+     *
+     * @param primary   The pool of the primary, used inside write scopes and
+     *                  when no replica is reachable.
+     * @param replicas  The replica pools.
+     * @param balancing How replicas are chosen.
+     */
+    public ReplicaDataSource(ConnectionPool primary, List<ConnectionPool> replicas, Balancing balancing) {
+        this(primary, replicas, balancing, 0, DEFAULT_BACKOFF_MS);
+    }
+
+    /**
+     * Creates a routing data source.
+     *
+     * @param primary         The pool of the primary, used inside write scopes
+     *                        and when no replica is reachable.
+     * @param replicas        The replica pools.
+     * @param balancing       How replicas are chosen.
+     * @param borrowTimeoutMs How long to wait for a busy replica pool before
+     *                        trying the next one; 0 does not wait.
+     * @param backoffMs       How long a replica that failed to connect is
+     *                        skipped.
+     */
+    public ReplicaDataSource(ConnectionPool primary, List<ConnectionPool> replicas, Balancing balancing,
+            long borrowTimeoutMs, long backoffMs) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.balancing = balancing;
+        this.borrowTimeoutMs = Math.max(0, borrowTimeoutMs);
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, backoffMs));
+        this.unhealthyUntil = new AtomicLongArray(this.replicas.size());
+    }
+
+    /**
+     * Marks the current thread as running a write transaction until the matching
+     * {@link #endWriteScope()}. Scopes nest.
+     */
+    public static void beginWriteScope() {
+        int[] depth = writeDepth.get();
+        if (depth == null) {
+            depth = new int[1];
+            writeDepth.set(depth);
+        }
+        depth[0]++;
+    }
+
+    /**
+     * Closes the scope opened by the last {@link #beginWriteScope()}.
+     */
+    public static void endWriteScope() {
+        int[] depth = writeDepth.get();
+        if (depth != null && --depth[0] <= 0) {
+            writeDepth.remove();
+        }
+    }
+
+    /**
+     * Returns whether the current thread is inside a write scope.
+     */
+    public static boolean inWriteScope() {
+        int[] depth = writeDepth.get();
+        return depth != null && depth[0] > 0;
+    }
+
+    /**
+     * Borrows a connection from a replica, or from the primary inside a write
+     * scope or when no replica can provide one.
+     *
+     * @return A pooled connection; close it to give it back to its pool.
+     * @throws SQLException If the primary cannot provide a connection either.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || inWriteScope()) {
+            return primary.getConnection();
+        }
+
+        long now = System.nanoTime();
+        int first = firstReplica(now);
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (first + i) % replicas.size();
+            if (!isHealthy(index, now)) {
+                continue;
+            }
+            try {
+                Connection conn = replicas.get(index).getConnection(borrowTimeoutMs);
+                unhealthyUntil.set(index, 0);
+                return conn;
+            } catch (SQLTransientConnectionException e) {
+                // Every connection of this replica is busy, which says nothing about its health
+            } catch (SQLException e) {
+                // Replica down: leave it alone until the backoff window has passed
+                unhealthyUntil.set(index, Math.max(1, System.nanoTime() + backoffNanos));
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Returns whether a replica is currently tried, that is, it has not failed
+     * to connect within the last backoff window.
+     *
+     * @param index The position of the replica in {@link #getReplicas()}.
+     * @return False while the replica is being skipped.
+     */
+    public boolean isHealthy(int index) {
+        return isHealthy(index, System.nanoTime());
+    }
+
+    private boolean isHealthy(int index, long now) {
+        long until = unhealthyUntil.get(index);
+        return until == 0 || now - until >= 0;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use the configured credentials");
+    }
+
+    private int firstReplica(long now) {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (balancing == Balancing.ROUND_ROBIN) {
+            return start;
+        }
+        // Least loaded, scanning from the round-robin position so ties are spread out
+        int best = start;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (!isHealthy(index, now)) {
+                continue;
+            }
+            int active = replicas.get(index).getActiveConnections();
+            if (active < bestActive) {
+                best = index;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    public List<ConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    public Balancing getBalancing() {
+        return balancing;
+    }
+
+    /**
+     * Closes the replica pools. The primary belongs to the caller and stays open.
+     */
+    public void close() {
+        for (ConnectionPool replica : replicas) {
+            replica.close();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
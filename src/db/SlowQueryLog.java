@@ -0,0 +1,583 @@
+package db;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Log of the prepared statements that took longer than a threshold.
+ *
+ * {@link ConnectionPool} wraps every prepared statement with
+ * {@link #trace(PreparedStatement, String, long)} when {@code slowlog.enabled}
+ * is true. Each execution is timed in three parts: preparing the statement,
+ * executing it, and reading the rows (from the end of the execution until the
+ * result set or the statement is closed, which is where the DAOs map rows to
+ * entities). Executions slower than {@code slowlog.thresholdMs} are sampled
+ * with probability {@code slowlog.sampleRate} and logged together with the
+ * SQL, the bind values, the row count and the calling DAO method.
+ *
+ * Result sets are handed back to the DAO unwrapped, so reading rows costs
+ * nothing extra and the mapping time ends when the statement is closed. The
+ * rows a query returned are only counted when {@code slowlog.traceRows} is
+ * true, which wraps every result set in a proxy and puts each getter of the
+ * row mapping behind a reflective call; keep it for diagnosing a specific
+ * query.
+ *
+ * Bind values of the columns listed in {@code slowlog.redactColumns} are
+ * replaced by {@code ***} (every value when {@code slowlog.redactAll} is true)
+ * and long values are cut to {@code slowlog.maxBindLength} characters.
+ *
+ * Entries are handed to a bounded queue ({@code slowlog.queueSize}) drained by
+ * a background thread that formats them and writes them to
+ * {@code slowlog.file}, or to standard error when no file is set. A caller
+ * never blocks on the log: when the queue is full the entry is dropped and
+ * counted.
+ */
+public class SlowQueryLog implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(SlowQueryLog.class.getName());
+
+    private static final String REDACTED = "***";
+
+    // Identifiers (optionally qualified), placeholders, string literals, or any other single character
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z_][A-Za-z0-9_.]*|\\?|'(?:[^']|'')*'|\\S");
+    private static final Pattern INSERT_COLUMNS = Pattern
+            .compile("(?is)^\\s*INSERT\\s+INTO\\s+\\S+\\s*\\(([^)]*)\\)\\s*VALUES");
+    // Tokens between a column and its placeholder: WHERE Id BETWEEN ? AND ?, Id IN (?, ?), Name >= ?
+    private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList(
+            "?", "(", ",", "=", "<", ">", "!", "IN", "NOT", "BETWEEN", "AND", "LIKE", "IS"));
+    // Placeholders that are not column values
+    private static final Set<String> NOT_COLUMNS = new HashSet<>(Arrays.asList("LIMIT", "OFFSET"));
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final boolean redactAll;
+    private final boolean traceRows;
+    private final Set<String> redactColumns = new HashSet<>();
+    private final int maxBindLength;
+    private final String callerPrefix;
+
+    // Column of each placeholder, per SQL text
+    private final ConcurrentHashMap<String, String[]> placeholderColumns = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Entry> queue;
+    private final Writer out;
+    private final boolean closeOut;
+    private final Thread appender;
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a slow query log from the {@code slowlog.*} settings and starts its
+     * appender thread.
+     *
+     * @param properties The application properties.
+     */
+    public SlowQueryLog(Properties properties) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS
+                .toNanos(Long.parseLong(properties.getProperty("slowlog.thresholdMs", "100").trim()));
+        this.sampleRate = Double.parseDouble(properties.getProperty("slowlog.sampleRate", "1.0").trim());
+        this.redactAll = Boolean.parseBoolean(properties.getProperty("slowlog.redactAll", "false").trim());
+        this.traceRows = Boolean.parseBoolean(properties.getProperty("slowlog.traceRows", "false").trim());
+        this.maxBindLength = Integer.parseInt(properties.getProperty("slowlog.maxBindLength", "64").trim());
+        this.callerPrefix = properties.getProperty("slowlog.callerPackage", "model.dao.").trim();
+        for (String column : properties.getProperty("slowlog.redactColumns", "").split(",")) {
+            if (!column.trim().isEmpty()) {
+                redactColumns.add(column.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+
+        this.queue = new ArrayBlockingQueue<>(
+                Math.max(1, Integer.parseInt(properties.getProperty("slowlog.queueSize", "1024").trim())));
+
+        String file = properties.getProperty("slowlog.file");
+        try {
+            if (file == null || file.trim().isEmpty()) {
+                this.out = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+                this.closeOut = false;
+            } else {
+                this.out = Files.newBufferedWriter(Paths.get(file.trim()), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                this.closeOut = true;
+            }
+        } catch (IOException e) {
+            throw new DbException("Could not open slow query log " + file + ": " + e.getMessage(), e);
+        }
+
+        this.appender = new Thread(this::drain, "db-slow-query-log");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    /**
+     * Wraps a freshly prepared statement so its executions are timed.
+     *
+     * @param st           The statement to trace.
+     * @param sql          Its SQL text.
+     * @param prepareNanos How long preparing it took.
+     * @return A statement proxy that reports slow executions to this log.
+     */
+    public PreparedStatement trace(PreparedStatement st, String sql, long prepareNanos) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                SlowQueryLog.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new TracingStatementHandler(st, sql, prepareNanos));
+    }
+
+    /**
+     * Returns the number of entries written so far.
+     */
+    public long getLogged() {
+        return logged.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes the entries still queued and stops the appender thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        appender.interrupt();
+        try {
+            appender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>();
+        long droppedReported = 0;
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Entry first;
+                try {
+                    first = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // close() wakes the thread up, write whatever is left and stop
+                    first = queue.poll();
+                    if (first == null) {
+                        break;
+                    }
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    out.write(format(entry));
+                    logged.increment();
+                }
+                batch.clear();
+
+                long droppedNow = dropped.sum();
+                if (droppedNow > droppedReported) {
+                    out.write(Instant.now() + " slow query log queue full, " + (droppedNow - droppedReported)
+                            + " entries dropped" + System.lineSeparator());
+                    droppedReported = droppedNow;
+                }
+                // Flush once the burst has been written, not after every line
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Slow query log stopped", e);
+        } finally {
+            try {
+                if (closeOut) {
+                    out.close();
+                } else {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Nothing more can be done with the log
+            }
+        }
+    }
+
+    private String format(Entry e) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(Instant.ofEpochMilli(e.timestamp))
+                .append(" slow query ").append(millis(e.prepareNanos + e.executeNanos + e.mappingNanos))
+                .append(" ms (prepare ").append(millis(e.prepareNanos))
+                .append(" ms, execute ").append(millis(e.executeNanos))
+                .append(" ms, mapping ").append(millis(e.mappingNanos))
+                .append(" ms) rows=");
+        if (e.rows < 0) {
+            sb.append('?');
+        } else {
+            sb.append(e.rows);
+        }
+        if (e.batchSize > 0) {
+            sb.append(" batch=").append(e.batchSize);
+        }
+        sb.append(" caller=").append(e.caller);
+        if (e.error != null) {
+            sb.append(" error=\"").append(e.error).append('"');
+        }
+        sb.append(" sql=\"").append(e.sql.replaceAll("\\s+", " ")).append('"');
+        sb.append(" binds=[");
+        String[] columns = placeholderColumns.computeIfAbsent(e.sql, SlowQueryLog::columnsOf);
+        for (int i = 0; i < e.binds.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            String column = i < columns.length ? columns[i] : null;
+            sb.append(i + 1).append('=').append(bindValue(column, e.binds[i]));
+        }
+        sb.append(']').append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    private String bindValue(String column, Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (redactAll || (column != null && redactColumns.contains(column.toUpperCase(Locale.ROOT)))) {
+            return REDACTED;
+        }
+        String text = String.valueOf(value);
+        if (text.length() > maxBindLength) {
+            text = text.substring(0, maxBindLength) + "...";
+        }
+        return value instanceof Number || value instanceof Boolean ? text : "'" + text + "'";
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Works out which column each placeholder of a statement is compared with or
+     * assigned to, so bind values can be redacted by column name. Placeholders
+     * of an INSERT map to its column list, repeated for multi-row inserts; any
+     * other placeholder maps to the closest identifier before it.
+     */
+    static String[] columnsOf(String sql) {
+        List<String> columns = new ArrayList<>();
+
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] names = insert.group(1).split(",");
+            Matcher m = TOKEN.matcher(sql.substring(insert.end()));
+            while (m.find()) {
+                if (m.group().equals("?")) {
+                    columns.add(unqualified(names[columns.size() % names.length].trim()));
+                }
+            }
+            return columns.toArray(new String[0]);
+        }
+
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(sql);
+        while (m.find()) {
+            tokens.add(m.group());
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!tokens.get(i).equals("?")) {
+                continue;
+            }
+            String column = null;
+            for (int j = i - 1; j >= 0; j--) {
+                String token = tokens.get(j);
+                String upper = token.toUpperCase(Locale.ROOT);
+                if (!SKIPPED.contains(upper)) {
+                    boolean identifier = Character.isLetter(token.charAt(0)) || token.charAt(0) == '_';
+                    column = identifier && !NOT_COLUMNS.contains(upper) ? unqualified(token) : null;
+                    break;
+                }
+            }
+            columns.add(column);
+        }
+        return columns.toArray(new String[0]);
+    }
+
+    private static String unqualified(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    private String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(callerPrefix))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "."
+                        + f.getMethodName())
+                .orElse("?"));
+    }
+
+    /**
+     * One slow execution, formatted later on the appender thread.
+     */
+    private static final class Entry {
+
+        final long timestamp = System.currentTimeMillis();
+        String sql;
+        Object[] binds;
+        long prepareNanos;
+        long executeNanos;
+        long mappingNanos;
+        // -1 when the rows of a query were not counted
+        long rows;
+        int batchSize;
+        String caller;
+        String error;
+    }
+
+    /**
+     * Backs a traced statement: remembers the bind values of the current
+     * execution and times it until its rows have been read.
+     */
+    private final class TracingStatementHandler implements InvocationHandler {
+
+        private final PreparedStatement st;
+        private final String sql;
+        private long prepareNanos;
+
+        private Object[] binds = new Object[8];
+        private int bindCount = 0;
+        private int batchSize = 0;
+
+        // The execution being timed, reported by finish()
+        private boolean pending = false;
+        private boolean query = false;
+        private long executeNanos;
+        private long mappingStart;
+        private long rows;
+        private String error;
+
+        TracingStatementHandler(PreparedStatement st, String sql, long prepareNanos) {
+            this.st = st;
+            this.sql = sql;
+            this.prepareNanos = prepareNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return execute(proxy, method, args);
+                case "clearParameters":
+                    Arrays.fill(binds, null);
+                    bindCount = 0;
+                    break;
+                case "addBatch":
+                    batchSize++;
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                case "close":
+                    finish();
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    // setInt(1, x), setString(2, y), setNull(3, type), ...
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+            return invokeDelegate(st, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            finish();
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeDelegate(st, method, args);
+            } catch (Throwable e) {
+                executeNanos = System.nanoTime() - start;
+                pending = true;
+                query = false;
+                rows = 0;
+                error = e.getMessage();
+                finish();
+                throw e;
+            }
+            executeNanos = System.nanoTime() - start;
+            mappingStart = System.nanoTime();
+            pending = true;
+            query = result instanceof ResultSet;
+            error = null;
+            rows = 0;
+
+            if (result instanceof ResultSet) {
+                if (!traceRows) {
+                    // Mapping ends when the statement is closed; the rows go uncounted
+                    rows = -1;
+                    return result;
+                }
+                return Proxy.newProxyInstance(
+                        SlowQueryLog.class.getClassLoader(),
+                        new Class<?>[] { ResultSet.class },
+                        new TracingResultSetHandler((ResultSet) result, this, (Statement) proxy));
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    // SUCCESS_NO_INFO (-2) still means one row was written
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+                }
+            }
+            if (method.getName().endsWith("Batch")) {
+                // The batch has been sent, the statement starts an empty one
+                finish();
+                batchSize = 0;
+            }
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        /**
+         * Reports the current execution if it was slow enough and sampled. Called
+         * when the next execution starts, when the result set or the statement is
+         * closed, and after updates and batches.
+         */
+        void finish() {
+            if (!pending) {
+                return;
+            }
+            pending = false;
+            long mappingNanos = query ? System.nanoTime() - mappingStart : 0;
+            long total = prepareNanos + executeNanos + mappingNanos;
+
+            if (total >= thresholdNanos && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+                Entry entry = new Entry();
+                entry.sql = sql;
+                entry.binds = Arrays.copyOf(binds, bindCount);
+                entry.prepareNanos = prepareNanos;
+                entry.executeNanos = executeNanos;
+                entry.mappingNanos = mappingNanos;
+                entry.rows = rows;
+                entry.batchSize = batchSize;
+                entry.caller = caller();
+                entry.error = error;
+                submit(entry);
+            }
+            // Only the first execution of a statement pays for preparing it
+            prepareNanos = 0;
+        }
+    }
+
+    /**
+     * Backs a traced result set when {@code slowlog.traceRows} is true: counts
+     * the rows read and ends the timing of the execution when closed.
+     */
+    private static final class TracingResultSetHandler implements InvocationHandler {
+
+        private final ResultSet rs;
+        private final TracingStatementHandler execution;
+        private final Statement statement;
+
+        TracingResultSetHandler(ResultSet rs, TracingStatementHandler execution, Statement statement) {
+            this.rs = rs;
+            this.execution = execution;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasRow = invokeDelegate(rs, method, args);
+                    if (Boolean.TRUE.equals(hasRow)) {
+                        execution.rows++;
+                    }
+                    return hasRow;
+                case "close":
+                    execution.finish();
+                    break;
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return invokeDelegate(rs, method, args);
+        }
+    }
+
+    private static Object invokeDelegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SlowQueryLog [thresholdMs=" + TimeUnit.NANOSECONDS.toMillis(thresholdNanos) + ", sampleRate="
+                + sampleRate + ", logged=" + getLogged() + ", dropped=" + getDropped() + "]";
+    }
+}
@@ -0,0 +1,236 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared statements bound to one physical connection.
+ *
+ * A statement is removed from the cache while it is in use and put back when
+ * the borrower closes it, after its parameters and batch have been cleared. At
+ * most {@code maxSize} idle statements stay open; the least recently returned
+ * one is closed when the limit is exceeded.
+ */
+public class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final CacheStats stats;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+
+    /**
+     * Creates a cache for the given connection.
+     *
+     * @param physical The physical connection statements are prepared on.
+     * @param maxSize  The maximum number of idle statements kept open.
+     * @param stats    Counters shared by every cache of the same pool.
+     */
+    public StatementCache(Connection physical, int maxSize, CacheStats stats) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    closeQuietly(eldest.getValue());
+                    stats.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing an idle one when
+     * possible. Closing the returned statement hands it back to this cache.
+     *
+     * @param logical             The pooled connection the caller sees, returned
+     *                            from {@code getConnection()}.
+     * @param sql                 The SQL text.
+     * @param autoGeneratedKeys   {@link Statement#RETURN_GENERATED_KEYS} or
+     *                            {@link Statement#NO_GENERATED_KEYS}.
+     * @param resultSetType       The result set type.
+     * @param resultSetConcurrency The result set concurrency.
+     * @return A statement proxy backed by a cached statement.
+     * @throws SQLException If a new statement could not be prepared.
+     */
+    public PreparedStatement prepare(Connection logical, String sql, int autoGeneratedKeys, int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+
+        Key key = new Key(sql, autoGeneratedKeys, resultSetType, resultSetConcurrency);
+        PreparedStatement st;
+        synchronized (this) {
+            st = statements.remove(key);
+        }
+
+        if (st != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+            if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+                st = physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            } else {
+                st = physical.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            }
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatementHandler(key, st, logical));
+    }
+
+    /**
+     * Closes every idle statement. Called when the physical connection is
+     * discarded.
+     */
+    public synchronized void clear() {
+        Iterator<PreparedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+    }
+
+    private void giveBack(Key key, PreparedStatement st, boolean settingsChanged) {
+        try {
+            st.clearParameters();
+            st.clearBatch();
+            if (settingsChanged) {
+                st.setFetchSize(0);
+                st.setMaxRows(0);
+                st.setQueryTimeout(0);
+            }
+        } catch (SQLException e) {
+            closeQuietly(st);
+            return;
+        }
+
+        synchronized (this) {
+            if (maxSize <= 0 || statements.containsKey(key)) {
+                // Another copy of this statement is already cached
+                closeQuietly(st);
+            } else {
+                statements.put(key, st);
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+            // The statement is being discarded anyway
+        }
+    }
+
+    private static final class Key {
+
+        private final String sql;
+        private final int autoGeneratedKeys;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+
+        Key(String sql, int autoGeneratedKeys, int resultSetType, int resultSetConcurrency) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = sql.hashCode();
+            result = prime * result + autoGeneratedKeys;
+            result = prime * result + resultSetType;
+            result = prime * result + resultSetConcurrency;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return autoGeneratedKeys == other.autoGeneratedKeys
+                    && resultSetType == other.resultSetType
+                    && resultSetConcurrency == other.resultSetConcurrency
+                    && sql.equals(other.sql);
+        }
+    }
+
+    /**
+     * Backs the statement proxy given to one borrower: {@code close()} returns
+     * the statement to the cache instead of closing it.
+     */
+    private final class CachedStatementHandler implements InvocationHandler {
+
+        private final Key key;
+        private final PreparedStatement st;
+        private final Connection logical;
+        private boolean closed = false;
+        private boolean settingsChanged = false;
+
+        CachedStatementHandler(Key key, PreparedStatement st, Connection logical) {
+            this.key = key;
+            this.st = st;
+            this.logical = logical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        ResultSet rs = st.getResultSet();
+                        if (rs != null) {
+                            rs.close();
+                        }
+                        giveBack(key, st, settingsChanged);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || st.isClosed();
+                case "getConnection":
+                    return logical;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + st + "]";
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                return method.invoke(st, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
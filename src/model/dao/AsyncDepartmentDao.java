@@ -0,0 +1,26 @@
+package model.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import model.entities.Department;
+
+public interface AsyncDepartmentDao {
+
+    CompletableFuture<Void> insert(Department obj);
+
+    CompletableFuture<Void> insertAll(Collection<Department> list);
+
+    CompletableFuture<Void> update(Department obj);
+
+    CompletableFuture<Void> deleteById(Integer id);
+
+    CompletableFuture<Department> findById(Integer id);
+
+    CompletableFuture<Map<Integer, Department>> findByIds(Collection<Integer> ids);
+
+    CompletableFuture<List<Department>> findAll();
+
+}
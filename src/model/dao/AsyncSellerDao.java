@@ -0,0 +1,60 @@
+package model.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
+
+public interface AsyncSellerDao {
+
+    CompletableFuture<Void> insert(Seller obj);
+
+    CompletableFuture<Void> insertAll(Collection<Seller> list);
+
+    CompletableFuture<Void> update(Seller obj);
+
+    CompletableFuture<Void> deleteById(Integer id);
+
+    CompletableFuture<Seller> findById(Integer id);
+
+    CompletableFuture<Map<Integer, Seller>> findByIds(Collection<Integer> ids);
+
+    CompletableFuture<List<Seller>> findByDepartment(Department department);
+
+    CompletableFuture<List<Seller>> findAll();
+
+    CompletableFuture<SellerTable> findAllAsTable();
+
+    CompletableFuture<List<DepartmentSalaryStats>> salaryStatsByDepartment();
+
+    CompletableFuture<Integer> countByDepartment(Department department);
+
+    CompletableFuture<Page<Seller>> findPage(int pageSize, String continuationToken);
+
+    CompletableFuture<Page<Seller>> findPageByDepartment(Department department, int pageSize,
+            String continuationToken);
+
+    CompletableFuture<Integer> adjustSalaryByDepartment(Department department, double factor);
+
+    CompletableFuture<Integer> moveSellers(Department from, Department to);
+
+    CompletableFuture<Integer> deleteByIds(Collection<Integer> ids);
+
+    CompletableFuture<Boolean> updateChanged(Seller original, Seller modified);
+
+    CompletableFuture<List<SellerSummary>> findAllSummaries();
+
+    CompletableFuture<List<SellerSummary>> findSummariesByDepartment(Department department);
+
+    CompletableFuture<List<Seller>> findAll(Set<SellerColumn> columns);
+
+    CompletableFuture<List<Seller>> findByDepartment(Department department, Set<SellerColumn> columns);
+
+}
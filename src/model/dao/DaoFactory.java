@@ -1,16 +1,247 @@
 package model.dao;
 
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import db.ConnectionPool;
 import db.DB;
+import model.dao.impl.AsyncDaoExecutor;
+import model.dao.impl.AsyncDepartmentDaoImpl;
+import model.dao.impl.AsyncSellerDaoImpl;
+import model.dao.impl.CachingDepartmentDao;
+import model.dao.impl.DaoMetrics;
 import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.DepartmentIdentityMap;
+import model.dao.impl.MeteredDepartmentDao;
+import model.dao.impl.MeteredSellerDao;
+import model.dao.impl.ParallelSellerLoader;
+import model.dao.impl.SellerBatchLoader;
+import model.dao.impl.SellerCsvImporter;
 import model.dao.impl.SellerDaoJDBC;
+import model.dao.impl.SellerExporter;
+import model.dao.impl.SnapshotSellerDao;
+import model.dao.impl.UnitOfWork;
 
 public class DaoFactory {
 
+    // One canonical Department per id across every DAO this factory creates
+    private static final DepartmentIdentityMap departments = new DepartmentIdentityMap();
+
+    private static CachingDepartmentDao departmentCache = null;
+    private static AsyncDaoExecutor asyncExecutor = null;
+    private static DaoMetrics metrics = null;
+
+    /**
+     * Creates a seller DAO. When {@code dao.metrics.enabled} is true its calls
+     * are recorded in {@link #getMetrics()}.
+     *
+     * @return A seller DAO.
+     */
     public static SellerDao createSellerDao() {
-        return new SellerDaoJDBC(DB.getConnection());
+        SellerDaoJDBC dao = createSellerDaoJDBC();
+        return metricsEnabled() ? new MeteredSellerDao(dao, getMetrics()) : dao;
+    }
+
+    /**
+     * Creates a seller DAO that answers reads from the snapshot file named by
+     * {@code dao.snapshot.file} while it catches up with the database in the
+     * background, then rewrites that file for the next start. Close it when the
+     * application shuts down.
+     *
+     * @return A new snapshot-backed seller DAO.
+     */
+    public static SnapshotSellerDao createSnapshotSellerDao() {
+        boolean cached = Boolean.parseBoolean(DB.getProperties().getProperty("dao.departmentCache.enabled"));
+        String file = DB.getProperties().getProperty("dao.snapshot.file", "sellers.snapshot");
+        return new SnapshotSellerDao(createSellerDao(), createDepartmentDao(), departments,
+                cached ? getDepartmentCache() : null, Paths.get(file.trim()),
+                intProperty("dao.snapshot.retryMs", 5_000));
+    }
+
+    /**
+     * Starts a unit of work whose seller and department writes are buffered and
+     * applied as batches in a single transaction when it is committed.
+     *
+     * @return A new unit of work; close it when done.
+     */
+    public static UnitOfWork beginUnitOfWork() {
+        boolean cached = Boolean.parseBoolean(DB.getProperties().getProperty("dao.departmentCache.enabled"));
+        return new UnitOfWork(DB.getDataSource(), createSellerDaoJDBC(), createDepartmentDaoJDBC(), departments,
+                cached ? getDepartmentCache() : null, batchSize());
+    }
+
+    /**
+     * Creates an asynchronous seller DAO. Every async DAO shares one executor
+     * that lets at most {@code dao.async.maxConcurrency} calls (by default the
+     * connection pool size) run at once.
+     *
+     * @return A seller DAO whose methods return futures.
+     */
+    public static AsyncSellerDao createAsyncSellerDao() {
+        return new AsyncSellerDaoImpl(createSellerDao(), getAsyncExecutor());
+    }
+
+    /**
+     * Creates an asynchronous department DAO sharing the executor of
+     * {@link #createAsyncSellerDao()}.
+     *
+     * @return A department DAO whose methods return futures.
+     */
+    public static AsyncDepartmentDao createAsyncDepartmentDao() {
+        return new AsyncDepartmentDaoImpl(createDepartmentDao(), getAsyncExecutor());
+    }
+
+    private static synchronized AsyncDaoExecutor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            int poolSize = intProperty("pool.maxSize", 10);
+            asyncExecutor = new AsyncDaoExecutor(intProperty("dao.async.maxConcurrency", poolSize));
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Creates a loader that coalesces concurrent seller lookups by id into bulk
+     * queries, configured by the {@code dao.batchLoader.*} properties. Close it
+     * when the application shuts down.
+     *
+     * @return A new batch loader in front of a seller DAO.
+     */
+    public static SellerBatchLoader createSellerBatchLoader() {
+        return new SellerBatchLoader(createSellerDao(),
+                intProperty("dao.batchLoader.windowMs", 2),
+                intProperty("dao.batchLoader.maxBatchSize", 100),
+                intProperty("dao.batchLoader.threads", 2));
+    }
+
+    /**
+     * Creates a loader that reads the whole seller table in Id partitions on
+     * {@code dao.parallelLoad.workers} connections at once, by default half the
+     * connection pool so the rest of the application can still borrow
+     * connections while it runs. Close it when done.
+     *
+     * @return A new parallel loader.
+     * @throws IllegalArgumentException If {@code dao.parallelLoad.workers} is set
+     *                                  and not smaller than {@code pool.maxSize}.
+     */
+    public static ParallelSellerLoader createParallelSellerLoader() {
+        int poolSize = intProperty("pool.maxSize", 10);
+        int workers = intProperty("dao.parallelLoad.workers", Math.max(1, poolSize / 2));
+        if (DB.getProperties().getProperty("dao.parallelLoad.workers") != null && workers >= poolSize) {
+            throw new IllegalArgumentException("dao.parallelLoad.workers (" + workers
+                    + ") must be smaller than pool.maxSize (" + poolSize + ")");
+        }
+        return new ParallelSellerLoader(DB.getReadDataSource(), departments, workers);
+    }
+
+    /**
+     * Creates an importer that bulk loads sellers from CSV files, configured by
+     * the {@code dao.import.*} properties: {@code parseWorkers} (by default one
+     * per processor), {@code writers}, {@code batchSize} (by default
+     * {@code dao.batchSize}), {@code queueCapacity} and {@code chunkBytes}.
+     *
+     * @return A new CSV importer.
+     */
+    public static SellerCsvImporter createSellerCsvImporter() {
+        return new SellerCsvImporter(DB.getDataSource(), createDepartmentDao(),
+                intProperty("dao.import.parseWorkers", Runtime.getRuntime().availableProcessors()),
+                intProperty("dao.import.writers", 2),
+                intProperty("dao.import.batchSize", batchSize()),
+                intProperty("dao.import.queueCapacity", 16),
+                intProperty("dao.import.chunkBytes", 1 << 20));
+    }
+
+    /**
+     * Creates an exporter that streams sellers as CSV or JSON lines from the
+     * read data source, with the {@code dao.fetchSize} cursor of
+     * {@link SellerDao#streamAll()} and a {@code dao.export.bufferSize} byte
+     * output buffer.
+     *
+     * @return A new seller exporter.
+     */
+    public static SellerExporter createSellerExporter() {
+        return new SellerExporter(DB.getReadDataSource(),
+                intProperty("dao.fetchSize", SellerDaoJDBC.STREAMING_FETCH_SIZE),
+                intProperty("dao.export.bufferSize", SellerExporter.DEFAULT_BUFFER_SIZE));
     }
 
+    /**
+     * Creates a department DAO. When {@code dao.departmentCache.enabled} is true
+     * every DAO returned shares one read-through cache, so writes made through
+     * any of them invalidate the cached entries. When {@code dao.metrics.enabled}
+     * is true its calls are recorded in {@link #getMetrics()}.
+     *
+     * @return A department DAO, cached or not depending on the configuration.
+     */
     public static DepartmentDao createDepartmentDao() {
-        return new DepartmentDaoJDBC(DB.getConnection());
+        DepartmentDao dao = Boolean.parseBoolean(DB.getProperties().getProperty("dao.departmentCache.enabled"))
+                ? getDepartmentCache()
+                : createDepartmentDaoJDBC();
+        return metricsEnabled() ? new MeteredDepartmentDao(dao, getMetrics()) : dao;
+    }
+
+    /**
+     * Returns the metrics shared by every metered DAO, creating them on first
+     * use. They are also published through JMX under the {@code model.dao}
+     * domain together with the connection pool statistics.
+     *
+     * @return The DAO metrics registry.
+     */
+    public static synchronized DaoMetrics getMetrics() {
+        if (metrics == null) {
+            metrics = new DaoMetrics();
+            DataSource dataSource = DB.getDataSource();
+            metrics.registerMBeans(dataSource instanceof ConnectionPool ? (ConnectionPool) dataSource : null);
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the shared department cache, creating it on first use.
+     *
+     * @return The cache, also usable to read its hit ratio statistics.
+     */
+    public static synchronized CachingDepartmentDao getDepartmentCache() {
+        if (departmentCache == null) {
+            departmentCache = new CachingDepartmentDao(createDepartmentDaoJDBC(),
+                    intProperty("dao.departmentCache.maxSize", 1000),
+                    intProperty("dao.departmentCache.ttlMs", 300_000),
+                    intProperty("dao.departmentCache.negativeTtlMs", 30_000));
+        }
+        return departmentCache;
+    }
+
+    private static SellerDaoJDBC createSellerDaoJDBC() {
+        SellerDaoJDBC dao = new SellerDaoJDBC(DB.getDataSource(), DB.getReadDataSource(), departments);
+        dao.setBatchSize(batchSize());
+        dao.setInListSize(inListSize());
+        dao.setFetchSize(intProperty("dao.fetchSize", SellerDaoJDBC.STREAMING_FETCH_SIZE));
+        return dao;
+    }
+
+    private static DepartmentDaoJDBC createDepartmentDaoJDBC() {
+        DepartmentDaoJDBC dao = new DepartmentDaoJDBC(DB.getDataSource(), DB.getReadDataSource(), departments);
+        dao.setBatchSize(batchSize());
+        dao.setInListSize(inListSize());
+        return dao;
+    }
+
+    private static boolean metricsEnabled() {
+        return Boolean.parseBoolean(DB.getProperties().getProperty("dao.metrics.enabled"));
+    }
+
+    private static int batchSize() {
+        return intProperty("dao.batchSize", SellerDaoJDBC.DEFAULT_BATCH_SIZE);
+    }
+
+    private static int inListSize() {
+        return intProperty("dao.inListSize", SellerDaoJDBC.DEFAULT_IN_LIST_SIZE);
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        Properties properties = DB.getProperties();
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
     }
 }
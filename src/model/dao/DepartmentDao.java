@@ -1,6 +1,8 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import model.entities.Department;
 
@@ -8,12 +10,16 @@ public interface DepartmentDao {
 
     void insert(Department obj);
 
+    void insertAll(Collection<Department> list);
+
     void update(Department obj);
 
     void deleteById(Integer id);
 
     Department findById(Integer id);
 
+    Map<Integer, Department> findByIds(Collection<Integer> ids);
+
     List<Department> findAll();
 
 }
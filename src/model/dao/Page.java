@@ -0,0 +1,40 @@
+package model.dao;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * The continuation token is opaque to callers: pass it back unchanged to fetch
+ * the page that follows. It is null on the last page.
+ *
+ * @param <T> The type of the items on the page.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page [items=" + items.size() + ", nextToken=" + nextToken + "]";
+    }
+
+}
@@ -0,0 +1,24 @@
+package model.dao;
+
+/**
+ * Columns of the seller table that a projection query can select.
+ */
+public enum SellerColumn {
+
+    ID("Id"),
+    NAME("Name"),
+    EMAIL("Email"),
+    BIRTH_DATE("BirthDate"),
+    BASE_SALARY("BaseSalary"),
+    DEPARTMENT_ID("DepartmentId");
+
+    private final String columnName;
+
+    SellerColumn(String columnName) {
+        this.columnName = columnName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+}
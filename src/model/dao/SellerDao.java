@@ -1,22 +1,61 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
 import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
 
 public interface SellerDao {
 
     void insert(Seller obj);
 
+    void insertAll(Collection<Seller> list);
+
     void update(Seller obj);
 
     void deleteById(Integer id);
 
     Seller findById(Integer id);
 
+    Map<Integer, Seller> findByIds(Collection<Integer> ids);
+
     List<Seller> findByDepartment(Department department);
 
     List<Seller> findAll();
 
+    Stream<Seller> streamAll();
+
+    SellerTable findAllAsTable();
+
+    List<DepartmentSalaryStats> salaryStatsByDepartment();
+
+    int countByDepartment(Department department);
+
+    Page<Seller> findPage(int pageSize, String continuationToken);
+
+    Page<Seller> findPageByDepartment(Department department, int pageSize, String continuationToken);
+
+    int adjustSalaryByDepartment(Department department, double factor);
+
+    int moveSellers(Department from, Department to);
+
+    int deleteByIds(Collection<Integer> ids);
+
+    boolean updateChanged(Seller original, Seller modified);
+
+    List<SellerSummary> findAllSummaries();
+
+    List<SellerSummary> findSummariesByDepartment(Department department);
+
+    List<Seller> findAll(Set<SellerColumn> columns);
+
+    List<Seller> findByDepartment(Department department, Set<SellerColumn> columns);
+
 }
@@ -0,0 +1,120 @@
+package model.dao.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import db.DbTimeoutException;
+import db.Deadline;
+
+/**
+ * Runs blocking DAO calls off the caller's thread, with at most
+ * {@code maxConcurrency} of them touching the database at once.
+ *
+ * On a JVM with virtual threads (Java 21+) every call gets its own virtual
+ * thread, so thousands of pending calls cost almost nothing while they wait for
+ * a permit. On older JVMs the calls run on a fixed pool of
+ * {@code maxConcurrency} daemon platform threads instead.
+ *
+ * The {@link Deadline} current when a call is submitted stays current while it
+ * runs, and also bounds how long it waits for a permit.
+ */
+public class AsyncDaoExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    /**
+     * Creates an executor.
+     *
+     * @param maxConcurrency The maximum number of DAO calls running at once,
+     *                       normally the size of the connection pool.
+     */
+    public AsyncDaoExecutor(int maxConcurrency) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformExecutor(Math.max(1, maxConcurrency));
+    }
+
+    /**
+     * Runs a DAO call asynchronously.
+     *
+     * @param <T>  The result type.
+     * @param call The blocking call.
+     * @return A future completed with the call's result or its exception.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        // The caller's deadline follows the call onto the executor thread
+        Deadline deadline = Deadline.current();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (deadline == null) {
+                    permits.acquire();
+                } else if (!permits.tryAcquire(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)) {
+                    throw new DbTimeoutException("Deadline exceeded while waiting for a free DAO slot");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return deadline == null ? call.get() : deadline.call(call);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs a DAO call without result asynchronously.
+     *
+     * @param call The blocking call.
+     * @return A future completed when the call returns.
+     */
+    public CompletableFuture<Void> run(Runnable call) {
+        return submit(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available on this JVM
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "async-dao-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
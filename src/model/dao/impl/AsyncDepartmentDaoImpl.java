@@ -0,0 +1,60 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import model.dao.AsyncDepartmentDao;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Asynchronous view of a {@link DepartmentDao}: every call runs on an
+ * {@link AsyncDaoExecutor} and completes a future.
+ */
+public class AsyncDepartmentDaoImpl implements AsyncDepartmentDao {
+
+    private final DepartmentDao dao;
+    private final AsyncDaoExecutor executor;
+
+    public AsyncDepartmentDaoImpl(DepartmentDao dao, AsyncDaoExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> insert(Department obj) {
+        return executor.run(() -> dao.insert(obj));
+    }
+
+    @Override
+    public CompletableFuture<Void> insertAll(Collection<Department> list) {
+        return executor.run(() -> dao.insertAll(list));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Department obj) {
+        return executor.run(() -> dao.update(obj));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteById(Integer id) {
+        return executor.run(() -> dao.deleteById(id));
+    }
+
+    @Override
+    public CompletableFuture<Department> findById(Integer id) {
+        return executor.submit(() -> dao.findById(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Department>> findByIds(Collection<Integer> ids) {
+        return executor.submit(() -> dao.findByIds(ids));
+    }
+
+    @Override
+    public CompletableFuture<List<Department>> findAll() {
+        return executor.submit(dao::findAll);
+    }
+}
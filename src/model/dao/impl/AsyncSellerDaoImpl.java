@@ -0,0 +1,138 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import model.dao.AsyncSellerDao;
+import model.dao.Page;
+import model.dao.SellerColumn;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
+
+/**
+ * Asynchronous view of a {@link SellerDao}: every call runs on an
+ * {@link AsyncDaoExecutor} and completes a future.
+ */
+public class AsyncSellerDaoImpl implements AsyncSellerDao {
+
+    private final SellerDao dao;
+    private final AsyncDaoExecutor executor;
+
+    public AsyncSellerDaoImpl(SellerDao dao, AsyncDaoExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> insert(Seller obj) {
+        return executor.run(() -> dao.insert(obj));
+    }
+
+    @Override
+    public CompletableFuture<Void> insertAll(Collection<Seller> list) {
+        return executor.run(() -> dao.insertAll(list));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Seller obj) {
+        return executor.run(() -> dao.update(obj));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteById(Integer id) {
+        return executor.run(() -> dao.deleteById(id));
+    }
+
+    @Override
+    public CompletableFuture<Seller> findById(Integer id) {
+        return executor.submit(() -> dao.findById(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Seller>> findByIds(Collection<Integer> ids) {
+        return executor.submit(() -> dao.findByIds(ids));
+    }
+
+    @Override
+    public CompletableFuture<List<Seller>> findByDepartment(Department department) {
+        return executor.submit(() -> dao.findByDepartment(department));
+    }
+
+    @Override
+    public CompletableFuture<List<Seller>> findAll() {
+        return executor.submit(dao::findAll);
+    }
+
+    @Override
+    public CompletableFuture<SellerTable> findAllAsTable() {
+        return executor.submit(dao::findAllAsTable);
+    }
+
+    @Override
+    public CompletableFuture<List<DepartmentSalaryStats>> salaryStatsByDepartment() {
+        return executor.submit(dao::salaryStatsByDepartment);
+    }
+
+    @Override
+    public CompletableFuture<Integer> countByDepartment(Department department) {
+        return executor.submit(() -> dao.countByDepartment(department));
+    }
+
+    @Override
+    public CompletableFuture<Page<Seller>> findPage(int pageSize, String continuationToken) {
+        return executor.submit(() -> dao.findPage(pageSize, continuationToken));
+    }
+
+    @Override
+    public CompletableFuture<Page<Seller>> findPageByDepartment(Department department, int pageSize,
+            String continuationToken) {
+        return executor.submit(() -> dao.findPageByDepartment(department, pageSize, continuationToken));
+    }
+
+    @Override
+    public CompletableFuture<Integer> adjustSalaryByDepartment(Department department, double factor) {
+        return executor.submit(() -> dao.adjustSalaryByDepartment(department, factor));
+    }
+
+    @Override
+    public CompletableFuture<Integer> moveSellers(Department from, Department to) {
+        return executor.submit(() -> dao.moveSellers(from, to));
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteByIds(Collection<Integer> ids) {
+        return executor.submit(() -> dao.deleteByIds(ids));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateChanged(Seller original, Seller modified) {
+        return executor.submit(() -> dao.updateChanged(original, modified));
+    }
+
+    @Override
+    public CompletableFuture<List<SellerSummary>> findAllSummaries() {
+        return executor.submit(dao::findAllSummaries);
+    }
+
+    @Override
+    public CompletableFuture<List<SellerSummary>> findSummariesByDepartment(Department department) {
+        return executor.submit(() -> dao.findSummariesByDepartment(department));
+    }
+
+    @Override
+    public CompletableFuture<List<Seller>> findAll(Set<SellerColumn> columns) {
+        return executor.submit(() -> dao.findAll(columns));
+    }
+
+    @Override
+    public CompletableFuture<List<Seller>> findByDepartment(Department department, Set<SellerColumn> columns) {
+        return executor.submit(() -> dao.findByDepartment(department, columns));
+    }
+}
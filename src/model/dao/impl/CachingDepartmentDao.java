@@ -0,0 +1,273 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import db.CacheStats;
+import db.DbException;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Read-through cache in front of another {@link DepartmentDao}.
+ *
+ * Lookups by id are served from a bounded LRU map whose entries expire after a
+ * time-to-live. Ids that do not exist are cached as well (for a shorter time)
+ * so repeated misses do not reach the database either. Every write made through
+ * this DAO invalidates the ids it touches.
+ */
+public class CachingDepartmentDao implements DepartmentDao {
+
+    private final DepartmentDao delegate;
+    private final int maxSize;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final CacheStats stats = new CacheStats("CachingDepartmentDao");
+    private final LinkedHashMap<Integer, Entry> cache;
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation = 0;
+
+    /**
+     * Creates a cache in front of the given DAO.
+     *
+     * @param delegate      The DAO that reads and writes the database.
+     * @param maxSize       The maximum number of cached ids.
+     * @param ttlMs         How long a department stays cached.
+     * @param negativeTtlMs How long a missing id stays cached as missing; 0
+     *                      disables negative caching.
+     */
+    public CachingDepartmentDao(DepartmentDao delegate, int maxSize, long ttlMs, long negativeTtlMs) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.cache = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > CachingDepartmentDao.this.maxSize) {
+                    stats.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void insert(Department obj) {
+        delegate.insert(obj);
+        // The new id may have been cached as missing
+        invalidate(obj.getId());
+    }
+
+    @Override
+    public void insertAll(Collection<Department> list) {
+        try {
+            delegate.insertAll(list);
+        } finally {
+            // Chunks committed before a failure are visible too
+            for (Department obj : list) {
+                invalidate(obj.getId());
+            }
+        }
+    }
+
+    @Override
+    public void update(Department obj) {
+        try {
+            delegate.update(obj);
+        } finally {
+            invalidate(obj.getId());
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    /**
+     * Finds a department by id, going to the database only when the id is not
+     * cached or its entry has expired.
+     *
+     * @param id The unique identifier of the department to be found.
+     * @return The department, or null if no such department exists.
+     * @throws DbException If the database lookup fails.
+     */
+    @Override
+    public Department findById(Integer id) {
+        if (id == null) {
+            return null;
+        }
+
+        Entry entry = lookup(id);
+        if (entry != null) {
+            return entry.department;
+        }
+
+        long gen = generation();
+        Department dep = delegate.findById(id);
+        store(id, dep, gen);
+        return dep;
+    }
+
+    /**
+     * Finds many departments by id. Cached ids are served from memory and only
+     * the rest are fetched, in one bulk query.
+     */
+    @Override
+    public Map<Integer, Department> findByIds(Collection<Integer> ids) {
+        Map<Integer, Department> result = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+
+        for (Integer id : ids) {
+            if (id == null || result.containsKey(id)) {
+                continue;
+            }
+            Entry entry = lookup(id);
+            if (entry == null) {
+                missing.add(id);
+                // Reserve the slot so the lookup order is kept
+                result.put(id, null);
+            } else if (entry.department != null) {
+                result.put(id, entry.department);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long gen = generation();
+            Map<Integer, Department> loaded = delegate.findByIds(missing);
+            for (Integer id : missing) {
+                Department dep = loaded.get(id);
+                store(id, dep, gen);
+                if (dep == null) {
+                    result.remove(id);
+                } else {
+                    result.put(id, dep);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists every department from the database and refreshes the cache with the
+     * result.
+     */
+    @Override
+    public List<Department> findAll() {
+        long gen = generation();
+        List<Department> list = delegate.findAll();
+        for (Department dep : list) {
+            store(dep.getId(), dep, gen);
+        }
+        return list;
+    }
+
+    /**
+     * Fills the cache with departments read from somewhere other than the
+     * database, such as a snapshot file. Ids already cached keep their entry,
+     * which is at least as recent.
+     *
+     * @param list The departments to cache.
+     */
+    public void prime(Collection<Department> list) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        synchronized (cache) {
+            for (Department dep : list) {
+                cache.putIfAbsent(dep.getId(), new Entry(dep, expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Drops one id from the cache.
+     *
+     * @param id The id to forget; ignored when null.
+     */
+    public void invalidate(Integer id) {
+        if (id != null) {
+            synchronized (cache) {
+                cache.remove(id);
+                generation++;
+            }
+        }
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+            generation++;
+        }
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private Entry lookup(Integer id) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(id);
+            if (entry != null && entry.expiresAt > now) {
+                stats.recordHit();
+                return entry;
+            }
+            if (entry != null) {
+                cache.remove(id);
+            }
+        }
+        stats.recordMiss();
+        return null;
+    }
+
+    private long generation() {
+        synchronized (cache) {
+            return generation;
+        }
+    }
+
+    private void store(Integer id, Department dep, long loadedAtGeneration) {
+        long ttl = dep != null ? ttlMs : negativeTtlMs;
+        if (ttl <= 0) {
+            return;
+        }
+        Entry entry = new Entry(dep, System.currentTimeMillis() + ttl);
+        synchronized (cache) {
+            if (generation == loadedAtGeneration) {
+                cache.put(id, entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final Department department;
+        final long expiresAt;
+
+        Entry(Department department, long expiresAt) {
+            this.department = department;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package model.dao.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import db.ConnectionPool;
+
+/**
+ * Registry of the {@link MethodMetrics} of every metered DAO method.
+ *
+ * Metrics can be read with {@link #snapshot()} or, once
+ * {@link #registerMBeans(ConnectionPool)} has been called, through JMX under
+ * the {@code model.dao} domain.
+ */
+public class DaoMetrics {
+
+    private static final Logger log = Logger.getLogger(DaoMetrics.class.getName());
+
+    private static final String DOMAIN = "model.dao";
+
+    private final ConcurrentHashMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private volatile MBeanServer server = null;
+
+    /**
+     * Returns the metrics of a method, creating them on first use.
+     *
+     * @param name The method name, such as {@code SellerDao.findById}.
+     * @return The metrics to record calls into.
+     */
+    public MethodMetrics method(String name) {
+        return methods.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Returns the metrics of every method recorded so far, sorted by name.
+     *
+     * @return Method name to metrics.
+     */
+    public Map<String, MethodMetrics> snapshot() {
+        return new TreeMap<>(methods);
+    }
+
+    /**
+     * Publishes the method metrics, and the connection pool if given, on the
+     * platform MBean server. Methods metered later are published as they are
+     * created.
+     *
+     * @param pool The pool to publish as well, or null.
+     */
+    public synchronized void registerMBeans(ConnectionPool pool) {
+        if (server != null) {
+            return;
+        }
+        MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+        if (pool != null) {
+            register(platform, "type=ConnectionPool", pool);
+        }
+        server = platform;
+        for (MethodMetrics metrics : methods.values()) {
+            register(platform, "type=DaoMetrics,name=" + metrics.getName(), metrics);
+        }
+    }
+
+    private MethodMetrics create(String name) {
+        MethodMetrics metrics = new MethodMetrics(name);
+        MBeanServer platform = server;
+        if (platform != null) {
+            register(platform, "type=DaoMetrics,name=" + name, metrics);
+        }
+        return metrics;
+    }
+
+    private static void register(MBeanServer platform, String properties, Object bean) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":" + properties);
+            if (!platform.isRegistered(objectName)) {
+                platform.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            // Metrics keep being recorded, they just cannot be read over JMX
+            log.log(Level.WARNING, "Could not register MBean " + properties, e);
+        }
+    }
+}
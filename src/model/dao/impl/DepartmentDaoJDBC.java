@@ -6,7 +6,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
 
 import db.DB;
 import db.DbException;
@@ -15,10 +22,73 @@ import model.entities.Department;
 
 public class DepartmentDaoJDBC implements DepartmentDao {
 
-  private Connection conn;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int DEFAULT_IN_LIST_SIZE = 256;
+
+  // Column indices resolved once per SQL text instead of label lookups on every row
+  private static final RowMapperCache<DepartmentRowMapper> mappers = new RowMapperCache<>(
+      DepartmentRowMapper::compile);
+
+  private DataSource dataSource;
+  private DataSource readDataSource;
+  private DepartmentIdentityMap departments;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private int inListSize = DEFAULT_IN_LIST_SIZE;
+
+  public DepartmentDaoJDBC(DataSource dataSource) {
+    this(dataSource, new DepartmentIdentityMap());
+  }
+
+  /**
+   * Creates a DAO that returns the canonical departments of the given identity
+   * map, the same instances the seller graphs point at.
+   *
+   * @param dataSource  The pool connections are borrowed from.
+   * @param departments The identity map departments are resolved through.
+   */
+  public DepartmentDaoJDBC(DataSource dataSource, DepartmentIdentityMap departments) {
+    this(dataSource, dataSource, departments);
+  }
+
+  /**
+   * Creates a DAO that writes through one data source and reads through
+   * another, typically the primary and a set of replicas.
+   *
+   * @param dataSource     The pool inserts, updates and deletes use.
+   * @param readDataSource The data source queries use.
+   * @param departments    The identity map departments are resolved through.
+   */
+  public DepartmentDaoJDBC(DataSource dataSource, DataSource readDataSource,
+      DepartmentIdentityMap departments) {
+    this.dataSource = dataSource;
+    this.readDataSource = readDataSource;
+    this.departments = departments;
+  }
 
-  public DepartmentDaoJDBC(Connection conn) {
-    this.conn = conn;
+  /**
+   * Sets how many rows {@link #insertAll(Collection)} sends per JDBC batch and
+   * commits per transaction.
+   *
+   * @param batchSize The number of rows per batch; must be positive.
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Sets the maximum number of ids {@link #findByIds(Collection)} puts in one IN
+   * list.
+   *
+   * @param inListSize The maximum IN list length; must be positive.
+   */
+  public void setInListSize(int inListSize) {
+    if (inListSize <= 0) {
+      throw new IllegalArgumentException("IN list size must be positive: " + inListSize);
+    }
+    this.inListSize = inListSize;
   }
 
   /**
@@ -30,10 +100,15 @@ public class DepartmentDaoJDBC implements DepartmentDao {
   @Override
   public void insert(Department obj) {
 
+    Connection conn = null;
     PreparedStatement st = null;
+    ResultSet rs = null;
 
     try {
 
+      // Borrow a connection from the pool for the duration of this operation
+      conn = dataSource.getConnection();
+
       // Prepare the SQL statement with placeholders for the department's attributes
       st = conn.prepareStatement(
           "INSERT INTO department "
@@ -50,6 +125,11 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 
       // Check if the insertion was successful
       if (rows > 0) {
+        // Read the generated id back into the department object
+        rs = st.getGeneratedKeys();
+        if (rs.next()) {
+          obj.setId(rs.getInt(1));
+        }
         System.out.println("Insert succeeded! Rows affected: " + rows);
       } else {
         System.out.println("Insert failed! Rows: " + rows);
@@ -57,9 +137,182 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 
     } catch (SQLException e) {
       // If an error occurs, throw a custom exception
-      throw new DbException(e.getMessage());
+      throw new DbException(e.getMessage(), e);
+    } finally {
+      // Close the prepared statement and return the connection to the pool
+      DB.closeResultSet(rs);
+      DB.closeStatement(st);
+      DB.closeConnection(conn);
+    }
+  }
+
+  /**
+   * Inserts many departments using JDBC batches. The departments are sent in
+   * chunks of the configured batch size, each chunk in its own transaction, and
+   * the generated ids are written back into the department objects.
+   *
+   * @param list The departments to insert.
+   * @throws DbException If an error occurs while executing a batch. Chunks
+   *                     committed before the failing one stay in the database.
+   */
+  @Override
+  public void insertAll(Collection<Department> list) {
+
+    if (list.isEmpty()) {
+      return;
+    }
+
+    Connection conn = null;
+
+    try {
+      // Borrow one connection for every chunk and manage the transactions ourselves
+      conn = dataSource.getConnection();
+      conn.setAutoCommit(false);
+
+      List<Department> chunk = new ArrayList<>(Math.min(batchSize, list.size()));
+      for (Department obj : list) {
+        chunk.add(obj);
+        if (chunk.size() == batchSize) {
+          insertChunk(conn, chunk);
+          chunk.clear();
+        }
+      }
+      if (!chunk.isEmpty()) {
+        insertChunk(conn, chunk);
+      }
+
+    } catch (SQLException e) {
+      // If an error occurs while executing a batch, throw a custom exception
+      throw new DbException("Error executing batch insert: " + e.getMessage(), e);
+    } finally {
+      // Return the connection to the pool, which restores autocommit
+      DB.closeConnection(conn);
+    }
+  }
+
+  /**
+   * Inserts one chunk of departments as a single batch and commits it, rolling
+   * back if the batch fails.
+   */
+  private void insertChunk(Connection conn, List<Department> chunk) throws SQLException {
+    try {
+      insertBatch(conn, chunk);
+      conn.commit();
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds every department to one INSERT batch on the given connection, executes
+   * it and copies the generated keys back into the departments. Transaction
+   * handling is left to the caller.
+   *
+   * @param conn  The connection to run the batch on.
+   * @param chunk The departments to insert.
+   * @throws SQLException If the batch fails.
+   */
+  void insertBatch(Connection conn, List<Department> chunk) throws SQLException {
+
+    PreparedStatement st = null;
+    ResultSet rs = null;
+
+    try {
+      st = conn.prepareStatement(
+          "INSERT INTO department "
+              + "(Name) "
+              + "VALUES "
+              + "(?)",
+          Statement.RETURN_GENERATED_KEYS);
+
+      for (Department obj : chunk) {
+        st.setString(1, obj.getName());
+        st.addBatch();
+      }
+
+      st.executeBatch();
+
+      // The driver returns one generated key per inserted row, in batch order
+      rs = st.getGeneratedKeys();
+      for (Department obj : chunk) {
+        if (!rs.next()) {
+          break;
+        }
+        obj.setId(rs.getInt(1));
+      }
+
+    } finally {
+      DB.closeResultSet(rs);
+      DB.closeStatement(st);
+    }
+  }
+
+  /**
+   * Adds every department to one UPDATE batch on the given connection and
+   * executes it. Transaction handling, and refreshing the identity map once the
+   * transaction commits, are left to the caller.
+   *
+   * @param conn  The connection to run the batch on.
+   * @param chunk The departments to update.
+   * @throws SQLException If the batch fails.
+   */
+  void updateBatch(Connection conn, List<Department> chunk) throws SQLException {
+
+    PreparedStatement st = null;
+
+    try {
+      st = conn.prepareStatement(
+          "UPDATE department " +
+              "SET Name =? " +
+              "WHERE Id =? ");
+
+      for (Department obj : chunk) {
+        st.setString(1, obj.getName());
+        st.setInt(2, obj.getId());
+        st.addBatch();
+      }
+
+      st.executeBatch();
+
+    } finally {
+      DB.closeStatement(st);
+    }
+  }
+
+  /**
+   * Adds every id to one DELETE batch on the given connection and executes it.
+   * Transaction handling, and evicting the ids from the identity map once the
+   * transaction commits, are left to the caller.
+   *
+   * @param conn  The connection to run the batch on.
+   * @param chunk The ids of the departments to delete.
+   * @throws SQLException If the batch fails.
+   * @throws DbException  If one of the ids does not exist.
+   */
+  void deleteBatch(Connection conn, List<Integer> chunk) throws SQLException {
+
+    PreparedStatement st = null;
+
+    try {
+      st = conn.prepareStatement(
+          "DELETE FROM department "
+              + "WHERE Id =?");
+
+      for (Integer id : chunk) {
+        st.setInt(1, id);
+        st.addBatch();
+      }
+
+      int[] counts = st.executeBatch();
+      for (int i = 0; i < counts.length; i++) {
+        // SUCCESS_NO_INFO (-2) is reported by drivers that rewrite the batch
+        if (counts[i] == 0) {
+          throw new DbException("Unexpected error! Id not found: " + chunk.get(i));
+        }
+      }
+
     } finally {
-      // Close the prepared statement to free up resources
       DB.closeStatement(st);
     }
   }
@@ -75,10 +328,14 @@ public class DepartmentDaoJDBC implements DepartmentDao {
   @Override
   public void update(Department obj) {
 
+    Connection conn = null;
     PreparedStatement st = null;
 
     try {
 
+      // Borrow a connection from the pool for the duration of this operation
+      conn = dataSource.getConnection();
+
       // Prepare the SQL statement with placeholders for the department's attributes
       st = conn.prepareStatement(
           "UPDATE department " +
@@ -94,15 +351,18 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 
       // Check if the update was successful
       if (rows > 0) {
+        // Keep the canonical instance in step with the new name
+        departments.resolve(obj.getId(), obj.getName());
         System.out.println("Updated " + rows + " rows");
       }
 
     } catch (SQLException e) {
       // If an error occurs, throw a custom exception
-      throw new DbException("Error executing update! " + e.getMessage());
+      throw new DbException("Error executing update! " + e.getMessage(), e);
     } finally {
-      // Close the prepared statement to free up resources
+      // Close the prepared statement and return the connection to the pool
       DB.closeStatement(st);
+      DB.closeConnection(conn);
     }
   }
 
@@ -118,9 +378,13 @@ public class DepartmentDaoJDBC implements DepartmentDao {
   @Override
   public void deleteById(Integer id) {
 
+    Connection conn = null;
     PreparedStatement st = null;
 
     try {
+      // Borrow a connection from the pool for the duration of this operation
+      conn = dataSource.getConnection();
+
       // Prepare the SQL statement to delete a department by its unique identifier.
       st = conn.prepareStatement(
           "DELETE FROM department "
@@ -134,14 +398,16 @@ public class DepartmentDaoJDBC implements DepartmentDao {
       if (rows == 0) {
         throw new DbException("Unexpected error! Id not found!");
       }
+      departments.evict(id);
       System.out.println("Success! ID deleted!");
 
     } catch (SQLException e) {
       // If an error occurs, throw a custom exception with the error message.
-      throw new DbException(e.getMessage());
+      throw new DbException(e.getMessage(), e);
     } finally {
-      // Close the prepared statement to free up resources.
+      // Close the prepared statement and return the connection to the pool.
       DB.closeStatement(st);
+      DB.closeConnection(conn);
     }
   }
 
@@ -157,28 +423,31 @@ public class DepartmentDaoJDBC implements DepartmentDao {
   @Override
   public Department findById(Integer id) {
 
+    Connection conn = null;
     PreparedStatement st = null;
     ResultSet rs = null;
 
     try {
 
+      // Borrow a connection from the pool for the duration of this operation
+      conn = readDataSource.getConnection();
+
       // Prepare the SQL statement with a placeholder for the department's identifier
-      st = conn.prepareStatement(
-          "SELECT * FROM department "
-              + "WHERE Id =?");
+      String sql = "SELECT * FROM department "
+          + "WHERE Id =?";
+      st = conn.prepareStatement(sql);
 
       // Set the value for the placeholder
       st.setInt(1, id);
 
       // Execute the SQL statement and retrieve the result set
       rs = st.executeQuery();
+      DepartmentRowMapper mapper = mappers.forQuery(sql, rs);
 
       // If a row is returned, create a new Department object and populate it with the
       // data from the result set
       if (rs.next()) {
-        Department dep = new Department();
-        dep.setId(rs.getInt("Id"));
-        dep.setName(rs.getString("Name"));
+        Department dep = mapper.department(rs, departments);
         return dep;
       }
 
@@ -187,12 +456,86 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 
     } catch (SQLException e) {
       // If an error occurs, throw a custom exception
-      throw new DbException(e.getMessage());
+      throw new DbException(e.getMessage(), e);
+    } finally {
+      // Close the prepared statement and result set and return the connection
+      DB.closeStatement(st);
+      DB.closeResultSet(rs);
+      DB.closeConnection(conn);
+    }
+  }
+
+  /**
+   * Finds many departments by id, splitting the ids into IN lists of the
+   * configured size.
+   *
+   * @param ids The ids to look up; duplicates and nulls are ignored.
+   * @return The departments found, keyed by id, in the order the ids were
+   *         given. Ids with no department are absent from the map.
+   * @throws DbException If an error occurs while executing the SQL query or
+   *                     handling the result set.
+   */
+  @Override
+  public Map<Integer, Department> findByIds(Collection<Integer> ids) {
+
+    // Remove duplicates while keeping the lookup order
+    List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+    unique.remove(null);
+    if (unique.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+
+    Connection conn = null;
+    PreparedStatement st = null;
+    ResultSet rs = null;
+    Map<Integer, Department> found = new HashMap<>(unique.size() * 2);
+
+    try {
+
+      // Borrow a connection from the pool for every chunk of ids
+      conn = readDataSource.getConnection();
+
+      for (int from = 0; from < unique.size(); from += inListSize) {
+        List<Integer> chunk = unique.subList(from, Math.min(from + inListSize, unique.size()));
+        int size = InClause.paddedSize(chunk.size(), inListSize);
+
+        String sql = "SELECT * FROM department "
+            + "WHERE Id IN (" + InClause.placeholders(size) + ")";
+        st = conn.prepareStatement(sql);
+        InClause.bind(st, 1, chunk, size);
+
+        rs = st.executeQuery();
+        DepartmentRowMapper mapper = mappers.forQuery(sql, rs);
+        while (rs.next()) {
+          Department dep = mapper.department(rs, departments);
+          found.put(dep.getId(), dep);
+        }
+
+        DB.closeResultSet(rs);
+        DB.closeStatement(st);
+        rs = null;
+        st = null;
+      }
+
+    } catch (SQLException e) {
+      // If an error occurs, throw a custom exception
+      throw new DbException(e.getMessage(), e);
     } finally {
-      // Close the prepared statement and result set to free up resources
+      // Close the prepared statement and result set and return the connection
       DB.closeStatement(st);
       DB.closeResultSet(rs);
+      DB.closeConnection(conn);
     }
+
+    // Rebuild the result in lookup order
+    Map<Integer, Department> result = new LinkedHashMap<>(found.size() * 2);
+    for (Integer id : unique) {
+      Department dep = found.get(id);
+      if (dep != null) {
+        result.put(id, dep);
+      }
+    }
+    return result;
   }
 
   /**
@@ -206,27 +549,30 @@ public class DepartmentDaoJDBC implements DepartmentDao {
   @Override
   public List<Department> findAll() {
 
+    Connection conn = null;
     PreparedStatement st = null;
     ResultSet rs = null;
 
     try {
 
+      // Borrow a connection from the pool for the duration of this operation
+      conn = readDataSource.getConnection();
+
       // Prepare the SQL statement to select all departments ordered by name
-      st = conn.prepareStatement(
-          "SELECT * FROM department "
-              + " ORDER BY Name");
+      String sql = "SELECT * FROM department "
+          + " ORDER BY Name";
+      st = conn.prepareStatement(sql);
 
       // Execute the SQL statement and retrieve the result set
       rs = st.executeQuery();
+      DepartmentRowMapper mapper = mappers.forQuery(sql, rs);
 
       // Create a new ArrayList to store the Department objects
       List<Department> list = new ArrayList<>();
 
       // Iterate through the result set and create Department objects for each row
       while (rs.next()) {
-        Department dep = new Department();
-        dep.setId(rs.getInt("Id"));
-        dep.setName(rs.getString("Name"));
+        Department dep = mapper.department(rs, departments);
 
         // Add the Department object to the list
         list.add(dep);
@@ -235,13 +581,14 @@ public class DepartmentDaoJDBC implements DepartmentDao {
       // Return the list of Department objects
       return list;
 
-    } catch (Exception e) {
+    } catch (SQLException e) {
       // If an error occurs, throw a custom exception with the error message
-      throw new DbException(e.getMessage());
+      throw new DbException(e.getMessage(), e);
     } finally {
-      // Close the prepared statement and result set to free up resources
+      // Close the prepared statement and result set and return the connection
       DB.closeStatement(st);
       DB.closeResultSet(rs);
+      DB.closeConnection(conn);
     }
   }
 }
@@ -0,0 +1,101 @@
+package model.dao.impl;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.entities.Department;
+
+/**
+ * Concurrent identity map that keeps one canonical {@link Department} instance
+ * per id.
+ *
+ * The map only holds weak references: a department stays canonical as long as
+ * some seller graph or caller still refers to it, and its entry is dropped once
+ * the garbage collector reclaims it.
+ */
+public class DepartmentIdentityMap {
+
+    private final ConcurrentHashMap<Integer, DepartmentRef> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Department> queue = new ReferenceQueue<>();
+
+    /**
+     * Returns the canonical department for the given id, creating it if none is
+     * alive. When the canonical instance exists but carries a different name,
+     * its name is refreshed with the value just read from the database.
+     *
+     * @param id   The department id.
+     * @param name The department name read from the database.
+     * @return The canonical department instance.
+     */
+    public Department resolve(Integer id, String name) {
+        expungeStaleEntries();
+
+        while (true) {
+            DepartmentRef ref = map.get(id);
+            Department dep = ref == null ? null : ref.get();
+            if (dep != null) {
+                if (!Objects.equals(dep.getName(), name)) {
+                    dep.setName(name);
+                }
+                return dep;
+            }
+
+            Department fresh = new Department(id, name);
+            DepartmentRef freshRef = new DepartmentRef(id, fresh, queue);
+            boolean installed = ref == null
+                    ? map.putIfAbsent(id, freshRef) == null
+                    : map.replace(id, ref, freshRef);
+            if (installed) {
+                return fresh;
+            }
+            // Another thread installed a department for this id first, use that one
+        }
+    }
+
+    /**
+     * Returns the canonical department for the given id if one is alive.
+     *
+     * @param id The department id.
+     * @return The canonical department, or null.
+     */
+    public Department get(Integer id) {
+        DepartmentRef ref = map.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * Forgets the canonical department of an id, for example after it was
+     * deleted.
+     *
+     * @param id The department id.
+     */
+    public void evict(Integer id) {
+        if (id != null) {
+            map.remove(id);
+        }
+    }
+
+    public int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    private void expungeStaleEntries() {
+        DepartmentRef ref;
+        while ((ref = (DepartmentRef) queue.poll()) != null) {
+            map.remove(ref.id, ref);
+        }
+    }
+
+    private static final class DepartmentRef extends WeakReference<Department> {
+
+        final Integer id;
+
+        DepartmentRef(Integer id, Department referent, ReferenceQueue<Department> queue) {
+            super(referent, queue);
+            this.id = id;
+        }
+    }
+}
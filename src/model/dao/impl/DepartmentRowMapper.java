@@ -0,0 +1,46 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import model.entities.Department;
+
+/**
+ * Maps rows of the department table to canonical Department instances by
+ * column index.
+ */
+final class DepartmentRowMapper implements RowMapperCache.Compiled {
+
+    private final int columnCount;
+    private final int id;
+    private final int name;
+
+    private DepartmentRowMapper(ResultSetMetaData md) throws SQLException {
+        this.columnCount = md.getColumnCount();
+        this.id = RowMapperCache.requireIndex(md, "Id");
+        this.name = RowMapperCache.requireIndex(md, "Name");
+    }
+
+    static DepartmentRowMapper compile(ResultSetMetaData md) throws SQLException {
+        return new DepartmentRowMapper(md);
+    }
+
+    @Override
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Resolves the Department of the current row through the identity map.
+     *
+     * @param rs          The ResultSet positioned on the row.
+     * @param departments The identity map holding the canonical departments.
+     * @return The canonical Department for the row.
+     * @throws SQLException If an error occurs while retrieving data from the
+     *                      ResultSet.
+     */
+    Department department(ResultSet rs, DepartmentIdentityMap departments) throws SQLException {
+        return departments.resolve(rs.getInt(id), rs.getString(name));
+    }
+}
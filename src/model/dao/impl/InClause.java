@@ -0,0 +1,53 @@
+package model.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Helpers for building {@code IN (?, ?, ...)} lists of bind parameters.
+ *
+ * List lengths are rounded up to the next power of two (capped at the chunk
+ * size) and the extra slots repeat the last id. That keeps the number of
+ * distinct SQL texts small, so the statement cache can reuse them.
+ */
+final class InClause {
+
+    private InClause() {
+    }
+
+    /**
+     * Returns the number of placeholders to use for a chunk of {@code n} ids.
+     */
+    static int paddedSize(int n, int max) {
+        int size = Integer.highestOneBit(n);
+        if (size < n) {
+            size <<= 1;
+        }
+        return Math.min(size, max);
+    }
+
+    /**
+     * Returns {@code ?,?,...,?} with {@code n} placeholders.
+     */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Binds the ids to parameters {@code first} .. {@code first + size - 1},
+     * repeating the last id to fill the padding slots.
+     */
+    static void bind(PreparedStatement st, int first, List<Integer> ids, int size) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            st.setInt(first + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * {@link DepartmentDao} decorator that records the latency, rows and errors of
+ * every call in {@link DaoMetrics}.
+ */
+public class MeteredDepartmentDao implements DepartmentDao {
+
+    private final DepartmentDao dao;
+
+    private final MethodMetrics insert;
+    private final MethodMetrics insertAll;
+    private final MethodMetrics update;
+    private final MethodMetrics deleteById;
+    private final MethodMetrics findById;
+    private final MethodMetrics findByIds;
+    private final MethodMetrics findAll;
+
+    public MeteredDepartmentDao(DepartmentDao dao, DaoMetrics metrics) {
+        this.dao = dao;
+        this.insert = metrics.method("DepartmentDao.insert");
+        this.insertAll = metrics.method("DepartmentDao.insertAll");
+        this.update = metrics.method("DepartmentDao.update");
+        this.deleteById = metrics.method("DepartmentDao.deleteById");
+        this.findById = metrics.method("DepartmentDao.findById");
+        this.findByIds = metrics.method("DepartmentDao.findByIds");
+        this.findAll = metrics.method("DepartmentDao.findAll");
+    }
+
+    @Override
+    public void insert(Department obj) {
+        long start = System.nanoTime();
+        try {
+            dao.insert(obj);
+            insert.success(start, 1);
+        } catch (RuntimeException e) {
+            insert.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Department> list) {
+        long start = System.nanoTime();
+        try {
+            dao.insertAll(list);
+            insertAll.success(start, list.size());
+        } catch (RuntimeException e) {
+            insertAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(Department obj) {
+        long start = System.nanoTime();
+        try {
+            dao.update(obj);
+            update.success(start, 1);
+        } catch (RuntimeException e) {
+            update.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        long start = System.nanoTime();
+        try {
+            dao.deleteById(id);
+            deleteById.success(start, 1);
+        } catch (RuntimeException e) {
+            deleteById.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Department findById(Integer id) {
+        long start = System.nanoTime();
+        try {
+            Department obj = dao.findById(id);
+            findById.success(start, obj == null ? 0 : 1);
+            return obj;
+        } catch (RuntimeException e) {
+            findById.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Integer, Department> findByIds(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, Department> map = dao.findByIds(ids);
+            findByIds.success(start, map.size());
+            return map;
+        } catch (RuntimeException e) {
+            findByIds.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Department> findAll() {
+        long start = System.nanoTime();
+        try {
+            List<Department> list = dao.findAll();
+            findAll.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findAll.failure(start, e);
+            throw e;
+        }
+    }
+}
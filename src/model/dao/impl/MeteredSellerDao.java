@@ -0,0 +1,359 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import model.dao.Page;
+import model.dao.SellerColumn;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
+
+/**
+ * {@link SellerDao} decorator that records the latency, rows and errors of
+ * every call in {@link DaoMetrics}.
+ *
+ * For {@link #streamAll()} only opening the stream is timed, since rows are
+ * read later while the caller consumes it.
+ */
+public class MeteredSellerDao implements SellerDao {
+
+    private final SellerDao dao;
+
+    private final MethodMetrics insert;
+    private final MethodMetrics insertAll;
+    private final MethodMetrics update;
+    private final MethodMetrics deleteById;
+    private final MethodMetrics findById;
+    private final MethodMetrics findByIds;
+    private final MethodMetrics findByDepartment;
+    private final MethodMetrics findAll;
+    private final MethodMetrics streamAll;
+    private final MethodMetrics findAllAsTable;
+    private final MethodMetrics salaryStatsByDepartment;
+    private final MethodMetrics countByDepartment;
+    private final MethodMetrics findPage;
+    private final MethodMetrics findPageByDepartment;
+    private final MethodMetrics adjustSalaryByDepartment;
+    private final MethodMetrics moveSellers;
+    private final MethodMetrics deleteByIds;
+    private final MethodMetrics updateChanged;
+    private final MethodMetrics findAllSummaries;
+    private final MethodMetrics findSummariesByDepartment;
+    private final MethodMetrics findAllProjected;
+    private final MethodMetrics findByDepartmentProjected;
+
+    public MeteredSellerDao(SellerDao dao, DaoMetrics metrics) {
+        this.dao = dao;
+        this.insert = metrics.method("SellerDao.insert");
+        this.insertAll = metrics.method("SellerDao.insertAll");
+        this.update = metrics.method("SellerDao.update");
+        this.deleteById = metrics.method("SellerDao.deleteById");
+        this.findById = metrics.method("SellerDao.findById");
+        this.findByIds = metrics.method("SellerDao.findByIds");
+        this.findByDepartment = metrics.method("SellerDao.findByDepartment");
+        this.findAll = metrics.method("SellerDao.findAll");
+        this.streamAll = metrics.method("SellerDao.streamAll");
+        this.findAllAsTable = metrics.method("SellerDao.findAllAsTable");
+        this.salaryStatsByDepartment = metrics.method("SellerDao.salaryStatsByDepartment");
+        this.countByDepartment = metrics.method("SellerDao.countByDepartment");
+        this.findPage = metrics.method("SellerDao.findPage");
+        this.findPageByDepartment = metrics.method("SellerDao.findPageByDepartment");
+        this.adjustSalaryByDepartment = metrics.method("SellerDao.adjustSalaryByDepartment");
+        this.moveSellers = metrics.method("SellerDao.moveSellers");
+        this.deleteByIds = metrics.method("SellerDao.deleteByIds");
+        this.updateChanged = metrics.method("SellerDao.updateChanged");
+        this.findAllSummaries = metrics.method("SellerDao.findAllSummaries");
+        this.findSummariesByDepartment = metrics.method("SellerDao.findSummariesByDepartment");
+        this.findAllProjected = metrics.method("SellerDao.findAllProjected");
+        this.findByDepartmentProjected = metrics.method("SellerDao.findByDepartmentProjected");
+    }
+
+    @Override
+    public void insert(Seller obj) {
+        long start = System.nanoTime();
+        try {
+            dao.insert(obj);
+            insert.success(start, 1);
+        } catch (RuntimeException e) {
+            insert.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Seller> list) {
+        long start = System.nanoTime();
+        try {
+            dao.insertAll(list);
+            insertAll.success(start, list.size());
+        } catch (RuntimeException e) {
+            insertAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(Seller obj) {
+        long start = System.nanoTime();
+        try {
+            dao.update(obj);
+            update.success(start, 1);
+        } catch (RuntimeException e) {
+            update.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        long start = System.nanoTime();
+        try {
+            dao.deleteById(id);
+            deleteById.success(start, 1);
+        } catch (RuntimeException e) {
+            deleteById.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        long start = System.nanoTime();
+        try {
+            Seller obj = dao.findById(id);
+            findById.success(start, obj == null ? 0 : 1);
+            return obj;
+        } catch (RuntimeException e) {
+            findById.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, Seller> map = dao.findByIds(ids);
+            findByIds.success(start, map.size());
+            return map;
+        } catch (RuntimeException e) {
+            findByIds.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department) {
+        long start = System.nanoTime();
+        try {
+            List<Seller> list = dao.findByDepartment(department);
+            findByDepartment.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Seller> findAll() {
+        long start = System.nanoTime();
+        try {
+            List<Seller> list = dao.findAll();
+            findAll.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<Seller> streamAll() {
+        long start = System.nanoTime();
+        try {
+            Stream<Seller> stream = dao.streamAll();
+            streamAll.success(start, 0);
+            return stream;
+        } catch (RuntimeException e) {
+            streamAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SellerTable findAllAsTable() {
+        long start = System.nanoTime();
+        try {
+            SellerTable table = dao.findAllAsTable();
+            findAllAsTable.success(start, table.size());
+            return table;
+        } catch (RuntimeException e) {
+            findAllAsTable.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<DepartmentSalaryStats> salaryStatsByDepartment() {
+        long start = System.nanoTime();
+        try {
+            List<DepartmentSalaryStats> list = dao.salaryStatsByDepartment();
+            salaryStatsByDepartment.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            salaryStatsByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int countByDepartment(Department department) {
+        long start = System.nanoTime();
+        try {
+            int count = dao.countByDepartment(department);
+            countByDepartment.success(start, 1);
+            return count;
+        } catch (RuntimeException e) {
+            countByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Seller> findPage(int pageSize, String continuationToken) {
+        long start = System.nanoTime();
+        try {
+            Page<Seller> page = dao.findPage(pageSize, continuationToken);
+            findPage.success(start, page.getItems().size());
+            return page;
+        } catch (RuntimeException e) {
+            findPage.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Seller> findPageByDepartment(Department department, int pageSize, String continuationToken) {
+        long start = System.nanoTime();
+        try {
+            Page<Seller> page = dao.findPageByDepartment(department, pageSize, continuationToken);
+            findPageByDepartment.success(start, page.getItems().size());
+            return page;
+        } catch (RuntimeException e) {
+            findPageByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int adjustSalaryByDepartment(Department department, double factor) {
+        long start = System.nanoTime();
+        try {
+            int rows = dao.adjustSalaryByDepartment(department, factor);
+            adjustSalaryByDepartment.success(start, rows);
+            return rows;
+        } catch (RuntimeException e) {
+            adjustSalaryByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int moveSellers(Department from, Department to) {
+        long start = System.nanoTime();
+        try {
+            int rows = dao.moveSellers(from, to);
+            moveSellers.success(start, rows);
+            return rows;
+        } catch (RuntimeException e) {
+            moveSellers.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int deleteByIds(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        try {
+            int rows = dao.deleteByIds(ids);
+            deleteByIds.success(start, rows);
+            return rows;
+        } catch (RuntimeException e) {
+            deleteByIds.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean updateChanged(Seller original, Seller modified) {
+        long start = System.nanoTime();
+        try {
+            boolean written = dao.updateChanged(original, modified);
+            updateChanged.success(start, written ? 1 : 0);
+            return written;
+        } catch (RuntimeException e) {
+            updateChanged.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<SellerSummary> findAllSummaries() {
+        long start = System.nanoTime();
+        try {
+            List<SellerSummary> list = dao.findAllSummaries();
+            findAllSummaries.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findAllSummaries.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<SellerSummary> findSummariesByDepartment(Department department) {
+        long start = System.nanoTime();
+        try {
+            List<SellerSummary> list = dao.findSummariesByDepartment(department);
+            findSummariesByDepartment.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findSummariesByDepartment.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Seller> findAll(Set<SellerColumn> columns) {
+        long start = System.nanoTime();
+        try {
+            List<Seller> list = dao.findAll(columns);
+            findAllProjected.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findAllProjected.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department, Set<SellerColumn> columns) {
+        long start = System.nanoTime();
+        try {
+            List<Seller> list = dao.findByDepartment(department, columns);
+            findByDepartmentProjected.success(start, list.size());
+            return list;
+        } catch (RuntimeException e) {
+            findByDepartmentProjected.failure(start, e);
+            throw e;
+        }
+    }
+}
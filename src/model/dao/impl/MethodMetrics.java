@@ -0,0 +1,135 @@
+package model.dao.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import db.DbException;
+import db.DbTimeoutException;
+import db.LatencyHistogram;
+
+/**
+ * Call count, latency histogram, rows mapped and errors of one DAO method.
+ *
+ * Recording a call does not allocate, except the first time a given SQLState
+ * is seen.
+ */
+public class MethodMetrics implements MethodMetricsMXBean {
+
+    private static final String NO_SQL_STATE = "none";
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> errorsBySqlState = new ConcurrentHashMap<>();
+
+    public MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a call that returned normally.
+     *
+     * @param startNanos The {@link System#nanoTime()} taken before the call.
+     * @param rowsMapped The number of rows the call read or wrote.
+     */
+    public void success(long startNanos, int rowsMapped) {
+        latency.record(System.nanoTime() - startNanos);
+        calls.increment();
+        rows.add(rowsMapped);
+    }
+
+    /**
+     * Records a call that threw.
+     *
+     * @param startNanos The {@link System#nanoTime()} taken before the call.
+     * @param e          The exception thrown by the call.
+     */
+    public void failure(long startNanos, RuntimeException e) {
+        latency.record(System.nanoTime() - startNanos);
+        calls.increment();
+        errors.increment();
+        if (e instanceof DbTimeoutException) {
+            // Counted apart so overload shows up separately from broken queries
+            timeouts.increment();
+        }
+
+        String state = e instanceof DbException ? ((DbException) e).getSQLState() : null;
+        errorsBySqlState.computeIfAbsent(state == null ? NO_SQL_STATE : state, k -> new LongAdder()).increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getRowsMapped() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / 1_000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getPercentileNanos(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getPercentileNanos(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getPercentileNanos(0.999) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : errorsBySqlState.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [calls=" + getCalls() + ", errors=" + getErrors() + ", timeouts=" + getTimeouts()
+                + ", rows=" + getRowsMapped()
+                + ", p50=" + getP50Micros() + "us, p99=" + getP99Micros() + "us, p999=" + getP999Micros()
+                + "us, max=" + getMaxMicros() + "us, errorsBySqlState=" + getErrorsBySqlState() + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package model.dao.impl;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of one DAO method.
+ */
+public interface MethodMetricsMXBean {
+
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getTimeouts();
+
+    long getRowsMapped();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    Map<String, Long> getErrorsBySqlState();
+
+}
@@ -0,0 +1,174 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import model.entities.Seller;
+
+/**
+ * Loads the whole seller table with several connections in parallel.
+ *
+ * The Id range of the table is split into partitions which are read
+ * concurrently, each on its own pooled connection, and the partial results are
+ * merged in Id order. Optionally the merged list is sorted by name so it
+ * matches {@link SellerDaoJDBC#findAll()}.
+ */
+public class ParallelSellerLoader implements AutoCloseable {
+
+    // Several partitions per worker so a dense Id range does not leave workers idle
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    // Same order as ORDER BY Name under MySQL's case-insensitive default collation, ties by Id
+    private static final Comparator<Seller> BY_NAME = Comparator
+            .comparing(Seller::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Seller::getId);
+
+    private static final RowMapperCache<SellerRowMapper> mappers = new RowMapperCache<>(SellerRowMapper::compile);
+
+    private final DataSource dataSource;
+    private final DepartmentIdentityMap departments;
+    private final int workers;
+    private final AsyncDaoExecutor executor;
+
+    /**
+     * Creates a loader.
+     *
+     * @param dataSource  The pool partitions borrow their connections from.
+     * @param departments The identity map departments are resolved through.
+     * @param workers     The number of partitions read at the same time.
+     */
+    public ParallelSellerLoader(DataSource dataSource, DepartmentIdentityMap departments, int workers) {
+        this.dataSource = dataSource;
+        this.departments = departments;
+        this.workers = Math.max(1, workers);
+        this.executor = new AsyncDaoExecutor(this.workers);
+    }
+
+    /**
+     * Loads every seller.
+     *
+     * @param sortByName Whether to sort the result by name like
+     *                   {@code findAll()}; otherwise sellers come in Id order.
+     * @return All sellers.
+     * @throws DbException If an error occurs while reading any partition.
+     */
+    public List<Seller> loadAll(boolean sortByName) {
+
+        long[] bounds = idBounds();
+        if (bounds == null) {
+            return new ArrayList<>();
+        }
+
+        // Split [min, max] into contiguous Id ranges
+        long min = bounds[0];
+        long max = bounds[1];
+        int partitions = (int) Math.min((long) workers * PARTITIONS_PER_WORKER, max - min + 1);
+        long step = (max - min + partitions) / partitions;
+
+        List<CompletableFuture<List<Seller>>> futures = new ArrayList<>(partitions);
+        for (long from = min; from <= max; from += step) {
+            int lo = (int) from;
+            int hi = (int) Math.min(max, from + step - 1);
+            futures.add(executor.submit(() -> loadRange(lo, hi)));
+        }
+
+        // Merge the partitions in Id order
+        List<Seller> merged = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<Seller>> future : futures) {
+                merged.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DbException) {
+                throw (DbException) e.getCause();
+            }
+            throw new DbException(e.getCause().getMessage(), e.getCause());
+        }
+
+        if (sortByName) {
+            Seller[] array = merged.toArray(new Seller[0]);
+            Arrays.parallelSort(array, BY_NAME);
+            return new ArrayList<>(Arrays.asList(array));
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private long[] idBounds() {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dataSource.getConnection();
+            st = conn.prepareStatement("SELECT MIN(Id), MAX(Id) FROM seller");
+            rs = st.executeQuery();
+
+            // MIN/MAX of an empty table are NULL
+            if (!rs.next() || rs.getObject(1) == null) {
+                return null;
+            }
+            return new long[] { rs.getLong(1), rs.getLong(2) };
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private List<Seller> loadRange(int lo, int hi) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dataSource.getConnection();
+
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "WHERE seller.Id BETWEEN ? AND ? "
+                    + "ORDER BY seller.Id";
+            st = conn.prepareStatement(sql);
+            st.setInt(1, lo);
+            st.setInt(2, hi);
+
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
+
+            List<Seller> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(mapper.seller(rs, mapper.department(rs, departments)));
+            }
+            return list;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+        }
+    }
+}
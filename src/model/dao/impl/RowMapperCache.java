@@ -0,0 +1,89 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches compiled row mappers per SQL text.
+ *
+ * A mapper is compiled once from the {@link ResultSetMetaData} of the first
+ * result of a statement: it records the index of every column it reads, so rows
+ * are then read by index instead of by label. The cached mapper is recompiled
+ * if a later result of the same SQL has a different column count, which happens
+ * when a {@code SELECT *} table gains or loses a column.
+ *
+ * @param <M> The mapper type.
+ */
+final class RowMapperCache<M extends RowMapperCache.Compiled> {
+
+    /**
+     * A mapper compiled for a given result set shape.
+     */
+    interface Compiled {
+
+        int columnCount();
+    }
+
+    /**
+     * Builds a mapper from result set metadata.
+     */
+    interface Compiler<M> {
+
+        M compile(ResultSetMetaData md) throws SQLException;
+    }
+
+    private final ConcurrentHashMap<String, M> mappers = new ConcurrentHashMap<>();
+    private final Compiler<M> compiler;
+
+    RowMapperCache(Compiler<M> compiler) {
+        this.compiler = compiler;
+    }
+
+    /**
+     * Returns the mapper for the given SQL, compiling it from the result set
+     * metadata on first use.
+     *
+     * @param sql The SQL text that produced the result set.
+     * @param rs  The result set about to be mapped.
+     * @return The compiled mapper.
+     * @throws SQLException If the metadata cannot be read or a required column
+     *                      is missing.
+     */
+    M forQuery(String sql, ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        M mapper = mappers.get(sql);
+        if (mapper == null || mapper.columnCount() != md.getColumnCount()) {
+            mapper = compiler.compile(md);
+            mappers.put(sql, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * Returns the 1-based index of the first column with the given label,
+     * ignoring case, or -1 when there is none.
+     */
+    static int indexOf(ResultSetMetaData md, String label) throws SQLException {
+        int count = md.getColumnCount();
+        for (int i = 1; i <= count; i++) {
+            if (label.equalsIgnoreCase(md.getColumnLabel(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link #indexOf(ResultSetMetaData, String)} but fails when the
+     * column is missing.
+     */
+    static int requireIndex(ResultSetMetaData md, String label) throws SQLException {
+        int index = indexOf(md, label);
+        if (index < 0) {
+            throw new SQLException("Column not found in result set: " + label);
+        }
+        return index;
+    }
+}
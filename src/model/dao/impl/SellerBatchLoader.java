@@ -0,0 +1,176 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import db.DbException;
+import model.dao.SellerDao;
+import model.entities.Seller;
+
+/**
+ * Coalesces concurrent {@link SellerDao#findById(Integer)} lookups into bulk
+ * {@link SellerDao#findByIds(java.util.Collection)} queries.
+ *
+ * Ids requested through {@link #load(Integer)} are collected for a short window
+ * (or until the batch is full) and then fetched together with one IN query.
+ * Callers asking for an id that is already waiting or being fetched share the
+ * same future instead of adding another lookup.
+ */
+public class SellerBatchLoader implements AutoCloseable {
+
+    private final SellerDao dao;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    // Ids collected for the next batch
+    private Map<Integer, CompletableFuture<Seller>> pending = new LinkedHashMap<>();
+    // Ids whose batch has been dispatched but not completed yet
+    private final Map<Integer, CompletableFuture<Seller>> inFlight = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * Creates a loader in front of the given DAO.
+     *
+     * @param dao          The DAO the batched lookups run against.
+     * @param windowMs     How long the first id of a batch waits for others.
+     * @param maxBatchSize The batch size that triggers an immediate query.
+     * @param threads      The number of batches that may run concurrently.
+     */
+    public SellerBatchLoader(SellerDao dao, long windowMs, int maxBatchSize, int threads) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.dao = dao;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "seller-batch-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Requests a seller by id. The lookup is queued with the other ids requested
+     * within the batching window.
+     *
+     * @param id The seller id.
+     * @return A future completed with the seller, or with null if no seller has
+     *         this id. It completes exceptionally with a {@link DbException} if
+     *         the batch query fails.
+     */
+    public CompletableFuture<Seller> load(Integer id) {
+        if (id == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<Integer, CompletableFuture<Seller>> batch = null;
+        CompletableFuture<Seller> future;
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Batch loader is closed");
+            }
+
+            // Share the lookup of an id that is already queued or being fetched
+            future = inFlight.get(id);
+            if (future == null) {
+                future = pending.get(id);
+            }
+            if (future != null) {
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            pending.put(id, future);
+
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                // First id of a new batch, flush it when the window ends
+                executor.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return future;
+    }
+
+    /**
+     * Sends the ids collected so far without waiting for the window to end.
+     */
+    public void flush() {
+        Map<Integer, CompletableFuture<Seller>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * Sends the ids still queued and stops accepting new lookups.
+     */
+    @Override
+    public void close() {
+        flush();
+        synchronized (lock) {
+            closed = true;
+        }
+        executor.shutdown();
+    }
+
+    private Map<Integer, CompletableFuture<Seller>> takePending() {
+        Map<Integer, CompletableFuture<Seller>> batch = pending;
+        pending = new LinkedHashMap<>();
+        inFlight.putAll(batch);
+        return batch;
+    }
+
+    private void dispatch(Map<Integer, CompletableFuture<Seller>> batch) {
+        try {
+            executor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            // Executor already shut down, run the last batch on the caller's thread
+            run(batch);
+        }
+    }
+
+    private void run(Map<Integer, CompletableFuture<Seller>> batch) {
+        List<Integer> ids = new ArrayList<>(batch.keySet());
+        try {
+            Map<Integer, Seller> found = dao.findByIds(ids);
+            finish(batch);
+            for (Map.Entry<Integer, CompletableFuture<Seller>> entry : batch.entrySet()) {
+                entry.getValue().complete(found.get(entry.getKey()));
+            }
+        } catch (RuntimeException e) {
+            finish(batch);
+            for (CompletableFuture<Seller> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void finish(Map<Integer, CompletableFuture<Seller>> batch) {
+        synchronized (lock) {
+            for (Map.Entry<Integer, CompletableFuture<Seller>> entry : batch.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,779 @@
+package model.dao.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Bulk loads sellers from a CSV file through a pipeline of threads joined by
+ * bounded queues:
+ * <ol>
+ * <li>the calling thread reads the file in fixed-size chunks through a
+ * {@link FileChannel} and cuts it into records;</li>
+ * <li>parse workers split the records into fields, validate them and resolve
+ * department names to departments;</li>
+ * <li>writers, each on its own connection, insert the valid rows with
+ * multi-row {@code INSERT ... VALUES (...),(...)} statements, one transaction
+ * per statement;</li>
+ * <li>a reject writer appends every refused record to the reject file.</li>
+ * </ol>
+ * Every queue holds a fixed number of record batches, so a slow stage makes the
+ * ones before it wait and memory stays constant however long the file is.
+ *
+ * The first record is a header naming the columns, in any order and any case:
+ * {@code Name}, {@code Email}, {@code BirthDate} ({@code yyyy-MM-dd}),
+ * {@code BaseSalary} and {@code Department} (the department name). Fields may
+ * be quoted as in RFC 4180, including line breaks inside quotes.
+ *
+ * Department names are matched ignoring case against a local copy of
+ * {@link DepartmentDao#findAll()}, reloaded once for each name it does not
+ * know. Records naming an unknown department are rejected, not created.
+ *
+ * A record is rejected when it cannot be parsed or validated, or when the
+ * database refuses it: if a multi-row insert fails, its rows are retried one
+ * by one so only the offending ones are rejected. The reject file starts with
+ * the original header plus an {@code Error} column and holds each refused
+ * record as it appeared in the input, followed by the reason.
+ */
+public class SellerCsvImporter {
+
+    // MySQL accepts at most 65535 placeholders per statement
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / 5;
+
+    private static final String[] COLUMNS = { "name", "email", "birthdate", "basesalary", "department" };
+    private static final int NAME = 0;
+    private static final int EMAIL = 1;
+    private static final int BIRTH_DATE = 2;
+    private static final int BASE_SALARY = 3;
+    private static final int DEPARTMENT = 4;
+
+    private final DataSource dataSource;
+    private final DepartmentDao departmentDao;
+    private final int parseWorkers;
+    private final int writers;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int chunkBytes;
+
+    /**
+     * Creates an importer.
+     *
+     * @param dataSource    The pool the writers borrow their connections from.
+     * @param departmentDao The DAO department names are resolved through.
+     * @param parseWorkers  The number of parse/validate threads.
+     * @param writers       The number of insert threads, each holding one
+     *                      connection for the whole import.
+     * @param batchSize     The number of rows per multi-row insert, which is
+     *                      also the number of records handed between stages
+     *                      at once.
+     * @param queueCapacity The number of batches each queue holds before the
+     *                      stage feeding it waits.
+     * @param chunkBytes    The size of the read buffer; it grows if a single
+     *                      record is longer.
+     */
+    public SellerCsvImporter(DataSource dataSource, DepartmentDao departmentDao, int parseWorkers, int writers,
+            int batchSize, int queueCapacity, int chunkBytes) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.dataSource = dataSource;
+        this.departmentDao = departmentDao;
+        this.parseWorkers = Math.max(1, parseWorkers);
+        this.writers = Math.max(1, writers);
+        this.batchSize = Math.min(batchSize, MAX_ROWS_PER_STATEMENT);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.chunkBytes = Math.max(4096, chunkBytes);
+    }
+
+    /**
+     * Imports every record of a CSV file.
+     *
+     * @param csv        The file to import.
+     * @param rejectFile Where refused records are written, or null to only
+     *                   count them. The file is replaced.
+     * @return The counts and throughput of the import.
+     * @throws DbException If the file cannot be read, the reject file cannot be
+     *                     written or a writer loses its connection. Batches
+     *                     committed before the failure stay in the database.
+     */
+    public Result importFile(Path csv, Path rejectFile) {
+        return new Run(csv, rejectFile).execute();
+    }
+
+    /**
+     * Counts and throughput of one import.
+     */
+    public static final class Result {
+
+        private final long records;
+        private final long inserted;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        Result(long records, long inserted, long rejected, long elapsedNanos) {
+            this.records = records;
+            this.inserted = inserted;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of data records read, not counting the header.
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * Returns the number of records processed (inserted or rejected) per
+         * second of wall-clock time.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : (inserted + rejected) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "SellerCsvImporter.Result [records=" + records + ", inserted=" + inserted + ", rejected="
+                    + rejected + ", elapsedMs=" + getElapsedMillis() + ", rowsPerSecond="
+                    + String.format(Locale.ROOT, "%.1f", getRowsPerSecond()) + "]";
+        }
+    }
+
+    // Raw records as cut by the reader, with the input line each one starts on
+    private static final class RecordBatch {
+
+        final String[] records;
+        final long[] lines;
+        int size;
+
+        RecordBatch(int capacity) {
+            records = new String[capacity];
+            lines = new long[capacity];
+        }
+    }
+
+    private static final class Row {
+
+        final long line;
+        final String record;
+        final Seller seller;
+
+        Row(long line, String record, Seller seller) {
+            this.line = line;
+            this.record = record;
+            this.seller = seller;
+        }
+    }
+
+    private static final class Reject {
+
+        final long line;
+        final String record;
+        final String reason;
+
+        Reject(long line, String record, String reason) {
+            this.line = line;
+            this.record = record;
+            this.reason = reason;
+        }
+    }
+
+    // End-of-input markers handed down the queues
+    private static final RecordBatch NO_MORE_RECORDS = new RecordBatch(0);
+    private static final List<Row> NO_MORE_ROWS = new ArrayList<>();
+    private static final Reject NO_MORE_REJECTS = new Reject(0, null, null);
+
+    /**
+     * The state of one {@link #importFile(Path, Path)} call.
+     */
+    private final class Run {
+
+        private final Path csv;
+        private final Path rejectFile;
+
+        private final BlockingQueue<RecordBatch> records = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Row>> rows = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Reject> rejects = new ArrayBlockingQueue<>(queueCapacity * batchSize);
+
+        private final AtomicLong recordCount = new AtomicLong();
+        private final AtomicLong insertedCount = new AtomicLong();
+        private final AtomicLong rejectedCount = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // Lower-cased department name to department, and names known to be missing
+        private final Map<String, Department> departments = new ConcurrentHashMap<>();
+        private final Set<String> unknownDepartments = ConcurrentHashMap.newKeySet();
+
+        private String header;
+        private int[] columnIndex;
+
+        Run(Path csv, Path rejectFile) {
+            this.csv = csv;
+            this.rejectFile = rejectFile;
+        }
+
+        Result execute() {
+            long startNanos = System.nanoTime();
+            loadDepartments();
+
+            List<Thread> parsers = new ArrayList<>();
+            List<Thread> inserters = new ArrayList<>();
+            Thread rejectWriter = null;
+
+            try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+                if (!readHeader(channel)) {
+                    return new Result(0, 0, 0, System.nanoTime() - startNanos);
+                }
+
+                if (rejectFile != null) {
+                    rejectWriter = startStage("csv-import-rejects", this::writeRejects);
+                }
+                for (int i = 1; i <= writers; i++) {
+                    inserters.add(startStage("csv-import-writer-" + i, this::insertRows));
+                }
+                for (int i = 1; i <= parseWorkers; i++) {
+                    parsers.add(startStage("csv-import-parser-" + i, this::parseRecords));
+                }
+
+                readRecords(channel);
+
+            } catch (IOException e) {
+                fail(new DbException("Error reading " + csv + ": " + e.getMessage(), e));
+            } finally {
+                // Shut the stages down in order, each after the one feeding it has drained
+                for (int i = 0; i < parsers.size(); i++) {
+                    put(records, NO_MORE_RECORDS);
+                }
+                join(parsers);
+                for (int i = 0; i < inserters.size(); i++) {
+                    put(rows, NO_MORE_ROWS);
+                }
+                join(inserters);
+                if (rejectWriter != null) {
+                    put(rejects, NO_MORE_REJECTS);
+                    join(List.of(rejectWriter));
+                }
+            }
+
+            Throwable t = failure.get();
+            if (t instanceof DbException) {
+                throw (DbException) t;
+            }
+            if (t != null) {
+                throw new DbException("Error importing " + csv + ": " + t.getMessage(), t);
+            }
+            return new Result(recordCount.get(), insertedCount.get(), rejectedCount.get(),
+                    System.nanoTime() - startNanos);
+        }
+
+        // ---- Reader stage ----
+
+        private byte[] buf;
+        private int filled;
+        private boolean eof;
+        private long lineNumber = 1;
+
+        private boolean readHeader(FileChannel channel) throws IOException {
+            buf = new byte[chunkBytes];
+            long[] line = new long[1];
+            String first = nextRecord(channel, line);
+            if (first == null) {
+                return false;
+            }
+            // Drop a UTF-8 byte order mark
+            if (first.startsWith("\uFEFF")) {
+                first = first.substring(1);
+            }
+            header = first;
+
+            List<String> names = new ArrayList<>();
+            splitFields(first, names, new StringBuilder());
+            columnIndex = new int[COLUMNS.length];
+            for (int c = 0; c < COLUMNS.length; c++) {
+                columnIndex[c] = -1;
+                for (int i = 0; i < names.size(); i++) {
+                    if (names.get(i).trim().toLowerCase(Locale.ROOT).equals(COLUMNS[c])) {
+                        columnIndex[c] = i;
+                    }
+                }
+                if (columnIndex[c] < 0) {
+                    throw new DbException("CSV header of " + csv + " has no " + COLUMNS[c] + " column: " + first);
+                }
+            }
+            return true;
+        }
+
+        private void readRecords(FileChannel channel) throws IOException {
+            long[] line = new long[1];
+            RecordBatch batch = new RecordBatch(batchSize);
+            String record;
+            while (failure.get() == null && (record = nextRecord(channel, line)) != null) {
+                if (record.isEmpty()) {
+                    continue;
+                }
+                batch.records[batch.size] = record;
+                batch.lines[batch.size] = line[0];
+                batch.size++;
+                if (batch.size == batchSize) {
+                    recordCount.addAndGet(batch.size);
+                    put(records, batch);
+                    batch = new RecordBatch(batchSize);
+                }
+            }
+            if (batch.size > 0) {
+                recordCount.addAndGet(batch.size);
+                put(records, batch);
+            }
+        }
+
+        // Unconsumed bytes are buf[recordStart, filled); scan is where the search for the record end resumes
+        private int recordStart;
+        private int scan;
+        private boolean inQuotes;
+        private long recordLine = 1;
+
+        /**
+         * Returns the next record of the file, without its line terminator, or
+         * null at the end. Line breaks inside quoted fields belong to the record.
+         *
+         * @param startLine Receives the input line the record starts on.
+         */
+        private String nextRecord(FileChannel channel, long[] startLine) throws IOException {
+            while (true) {
+                for (; scan < filled; scan++) {
+                    byte b = buf[scan];
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n') {
+                        lineNumber++;
+                        if (!inQuotes) {
+                            return cut(startLine, scan, scan + 1);
+                        }
+                    }
+                }
+
+                if (eof) {
+                    // Last record without a trailing line break
+                    return recordStart == filled ? null : cut(startLine, filled, filled);
+                }
+
+                if (recordStart > 0) {
+                    // Move the partial record to the front to make room
+                    System.arraycopy(buf, recordStart, buf, 0, filled - recordStart);
+                    filled -= recordStart;
+                    scan -= recordStart;
+                    recordStart = 0;
+                } else if (filled == buf.length) {
+                    // A single record fills the buffer
+                    byte[] larger = new byte[buf.length * 2];
+                    System.arraycopy(buf, 0, larger, 0, filled);
+                    buf = larger;
+                }
+                int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    filled += n;
+                }
+            }
+        }
+
+        // Decodes buf[recordStart, end) minus a trailing CR and moves past it to next
+        private String cut(long[] startLine, int end, int next) {
+            int length = end - recordStart;
+            if (length > 0 && buf[end - 1] == '\r') {
+                length--;
+            }
+            String record = new String(buf, recordStart, length, StandardCharsets.UTF_8);
+            startLine[0] = recordLine;
+            recordLine = lineNumber;
+            recordStart = next;
+            scan = next;
+            inQuotes = false;
+            return record;
+        }
+
+        // ---- Parse stage ----
+
+        private void parseRecords() {
+            List<String> fields = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            RecordBatch batch;
+            while ((batch = take(records)) != null && batch != NO_MORE_RECORDS) {
+                List<Row> parsed = new ArrayList<>(batch.size);
+                for (int i = 0; i < batch.size; i++) {
+                    String record = batch.records[i];
+                    long line = batch.lines[i];
+                    try {
+                        parsed.add(new Row(line, record, parse(record, fields, sb)));
+                    } catch (IllegalArgumentException e) {
+                        reject(line, record, e.getMessage());
+                    }
+                }
+                if (!parsed.isEmpty()) {
+                    put(rows, parsed);
+                }
+            }
+        }
+
+        private Seller parse(String record, List<String> fields, StringBuilder sb) {
+            splitFields(record, fields, sb);
+
+            String name = field(fields, NAME);
+            if (name == null) {
+                throw new IllegalArgumentException("Name is empty");
+            }
+
+            String email = field(fields, EMAIL);
+            if (email != null && email.indexOf('@') <= 0) {
+                throw new IllegalArgumentException("Invalid email: " + email);
+            }
+
+            String birthDate = field(fields, BIRTH_DATE);
+            if (birthDate == null) {
+                throw new IllegalArgumentException("BirthDate is empty");
+            }
+            java.sql.Date date;
+            try {
+                date = java.sql.Date.valueOf(LocalDate.parse(birthDate));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid BirthDate: " + birthDate);
+            }
+
+            String salary = field(fields, BASE_SALARY);
+            if (salary == null) {
+                throw new IllegalArgumentException("BaseSalary is empty");
+            }
+            double baseSalary;
+            try {
+                baseSalary = Double.parseDouble(salary);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid BaseSalary: " + salary);
+            }
+            if (!(baseSalary >= 0) || Double.isInfinite(baseSalary)) {
+                throw new IllegalArgumentException("Invalid BaseSalary: " + salary);
+            }
+
+            String departmentName = field(fields, DEPARTMENT);
+            if (departmentName == null) {
+                throw new IllegalArgumentException("Department is empty");
+            }
+            Department department = resolveDepartment(departmentName);
+            if (department == null) {
+                throw new IllegalArgumentException("Unknown department: " + departmentName);
+            }
+
+            return new Seller(null, name, email, date, baseSalary, department);
+        }
+
+        // The trimmed field for a column, or null when it is missing or blank
+        private String field(List<String> fields, int column) {
+            int index = columnIndex[column];
+            if (index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Department resolveDepartment(String name) {
+            String key = name.toLowerCase(Locale.ROOT);
+            Department dep = departments.get(key);
+            if (dep == null && !unknownDepartments.contains(key)) {
+                // A department may have been added since the import started
+                synchronized (departments) {
+                    dep = departments.get(key);
+                    if (dep == null && !unknownDepartments.contains(key)) {
+                        loadDepartments();
+                        dep = departments.get(key);
+                        if (dep == null) {
+                            unknownDepartments.add(key);
+                        }
+                    }
+                }
+            }
+            return dep;
+        }
+
+        private void loadDepartments() {
+            for (Department dep : departmentDao.findAll()) {
+                if (dep.getName() != null) {
+                    departments.putIfAbsent(dep.getName().toLowerCase(Locale.ROOT), dep);
+                }
+            }
+        }
+
+        // ---- Insert stage ----
+
+        private void insertRows() {
+            Connection conn = null;
+            PreparedStatement full = null;
+            List<Row> pending = new ArrayList<>(batchSize);
+
+            try {
+                conn = dataSource.getConnection();
+                conn.setAutoCommit(false);
+                full = conn.prepareStatement(insertSql(batchSize));
+
+                List<Row> batch;
+                while ((batch = take(rows)) != null && batch != NO_MORE_ROWS) {
+                    for (Row row : batch) {
+                        pending.add(row);
+                        if (pending.size() == batchSize) {
+                            insert(conn, full, pending);
+                            pending.clear();
+                        }
+                    }
+                }
+                if (!pending.isEmpty() && failure.get() == null) {
+                    PreparedStatement last = conn.prepareStatement(insertSql(pending.size()));
+                    try {
+                        insert(conn, last, pending);
+                    } finally {
+                        DB.closeStatement(last);
+                    }
+                }
+
+            } catch (SQLException e) {
+                fail(new DbException("Error importing sellers: " + e.getMessage(), e));
+            } finally {
+                DB.closeStatement(full);
+                // Return the connection to the pool, which restores autocommit
+                DB.closeConnection(conn);
+            }
+        }
+
+        /**
+         * Inserts the rows with one statement in one transaction. If the
+         * database refuses it, the rows are inserted one at a time so only the
+         * refused ones are rejected.
+         */
+        private void insert(Connection conn, PreparedStatement st, List<Row> chunk) throws SQLException {
+            try {
+                int p = 1;
+                for (Row row : chunk) {
+                    p = bind(st, p, row.seller);
+                }
+                st.executeUpdate();
+                conn.commit();
+                insertedCount.addAndGet(chunk.size());
+                return;
+            } catch (SQLNonTransientConnectionException e) {
+                throw e;
+            } catch (SQLException e) {
+                conn.rollback();
+            }
+
+            PreparedStatement single = conn.prepareStatement(insertSql(1));
+            try {
+                for (Row row : chunk) {
+                    try {
+                        bind(single, 1, row.seller);
+                        single.executeUpdate();
+                        conn.commit();
+                        insertedCount.incrementAndGet();
+                    } catch (SQLNonTransientConnectionException e) {
+                        throw e;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        reject(row.line, row.record, e.getMessage());
+                    }
+                }
+            } finally {
+                DB.closeStatement(single);
+            }
+        }
+
+        private int bind(PreparedStatement st, int p, Seller obj) throws SQLException {
+            st.setString(p++, obj.getName());
+            st.setString(p++, obj.getEmail());
+            st.setDate(p++, (java.sql.Date) obj.getBirthDate());
+            st.setDouble(p++, obj.getBaseSalary());
+            st.setInt(p++, obj.getDepartment().getId());
+            return p;
+        }
+
+        // ---- Reject stage ----
+
+        private void reject(long line, String record, String reason) {
+            rejectedCount.incrementAndGet();
+            if (rejectFile != null) {
+                put(rejects, new Reject(line, record, reason));
+            }
+        }
+
+        private void writeRejects() {
+            try (Writer out = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+                out.write(header);
+                out.write(",Error\n");
+                Reject reject;
+                while ((reject = take(rejects)) != null && reject != NO_MORE_REJECTS) {
+                    out.write(reject.record);
+                    out.write(',');
+                    out.write(quote("line " + reject.line + ": " + reject.reason));
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                fail(new DbException("Error writing " + rejectFile + ": " + e.getMessage(), e));
+            }
+        }
+
+        // ---- Plumbing ----
+
+        private Thread startStage(String name, Runnable stage) {
+            Thread t = new Thread(() -> {
+                try {
+                    stage.run();
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }, name);
+            t.setDaemon(true);
+            t.start();
+            return t;
+        }
+
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        /**
+         * Blocks until the queue has room, giving up once any stage has failed
+         * so no thread waits forever on a stage that stopped.
+         */
+        private <T> void put(BlockingQueue<T> queue, T item) {
+            try {
+                while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        /**
+         * Blocks until the queue has an item; returns null once any stage has
+         * failed.
+         */
+        private <T> T take(BlockingQueue<T> queue) {
+            try {
+                while (true) {
+                    T item = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (item != null) {
+                        return item;
+                    }
+                    if (failure.get() != null) {
+                        return null;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                return null;
+            }
+        }
+
+        private void join(List<Thread> threads) {
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits one CSV record into fields, undoing RFC 4180 quoting.
+     */
+    static void splitFields(String record, List<String> fields, StringBuilder sb) {
+        fields.clear();
+        sb.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"").replace('\n', ' ').replace('\r', ' ') + '"';
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO seller (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?,?,?,?,?)" : ",(?,?,?,?,?)");
+        }
+        return sql.toString();
+    }
+}
@@ -1,27 +1,129 @@
 package model.dao.impl;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
 
 import db.DB;
 import db.DbException;
+import db.Deadline;
+import model.dao.Page;
+import model.dao.SellerColumn;
 import model.dao.SellerDao;
 import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.LazyDepartment;
 import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
 
 public class SellerDaoJDBC implements SellerDao {
 
-    private Connection conn;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_IN_LIST_SIZE = 256;
+
+    /**
+     * Tells MySQL Connector/J to stream rows one at a time instead of buffering
+     * the whole result set in memory.
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // Column indices resolved once per SQL text instead of label lookups on every row
+    private static final RowMapperCache<SellerRowMapper> mappers = new RowMapperCache<>(SellerRowMapper::compile);
+
+    private DataSource dataSource;
+    private DataSource readDataSource;
+    private DepartmentIdentityMap departments;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = STREAMING_FETCH_SIZE;
+    private int inListSize = DEFAULT_IN_LIST_SIZE;
+
+    public SellerDaoJDBC(DataSource dataSource) {
+        this(dataSource, new DepartmentIdentityMap());
+    }
+
+    /**
+     * Creates a DAO whose seller graphs point at the canonical departments of the
+     * given identity map, so several DAOs can share one Department per id.
+     *
+     * @param dataSource  The pool connections are borrowed from.
+     * @param departments The identity map departments are resolved through.
+     */
+    public SellerDaoJDBC(DataSource dataSource, DepartmentIdentityMap departments) {
+        this(dataSource, dataSource, departments);
+    }
+
+    /**
+     * Creates a DAO that writes through one data source and reads through
+     * another, typically the primary and a set of replicas.
+     *
+     * @param dataSource     The pool inserts, updates and deletes use.
+     * @param readDataSource The data source queries use.
+     * @param departments    The identity map departments are resolved through.
+     */
+    public SellerDaoJDBC(DataSource dataSource, DataSource readDataSource, DepartmentIdentityMap departments) {
+        this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
+        this.departments = departments;
+    }
+
+    /**
+     * Sets how many rows {@link #insertAll(Collection)} sends per JDBC batch and
+     * commits per transaction.
+     *
+     * @param batchSize The number of rows per batch; must be positive.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the fetch size used by {@link #streamAll()}. The default,
+     * {@link #STREAMING_FETCH_SIZE}, makes MySQL stream rows one by one; a
+     * positive value fetches that many rows per round-trip when the URL enables
+     * {@code useCursorFetch}.
+     *
+     * @param fetchSize The JDBC fetch size hint.
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
 
-    public SellerDaoJDBC(Connection conn) {
-        this.conn = conn;
+    /**
+     * Sets the maximum number of ids {@link #findByIds(Collection)} puts in one
+     * IN list.
+     *
+     * @param inListSize The maximum IN list length; must be positive.
+     */
+    public void setInListSize(int inListSize) {
+        if (inListSize <= 0) {
+            throw new IllegalArgumentException("IN list size must be positive: " + inListSize);
+        }
+        this.inListSize = inListSize;
     }
 
     /**
@@ -37,9 +139,13 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public void insert(Seller obj) {
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
             // Prepare the SQL statement to insert a new seller into the database
             st = conn.prepareStatement(
                     "INSERT INTO seller "
@@ -80,9 +186,187 @@ public class SellerDaoJDBC implements SellerDao {
             }
         } catch (SQLException e) {
             // If an error occurs while executing the SQL query, throw a custom exception
-            throw new DbException(e.getMessage());
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            // Close the PreparedStatement and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Inserts many sellers using JDBC batches. The sellers are sent in chunks of
+     * the configured batch size, each chunk in its own transaction, and the
+     * generated ids are written back into the seller objects.
+     *
+     * @param list The sellers to insert, each with every field but the id set.
+     * @throws DbException If an error occurs while executing a batch. Chunks
+     *                     committed before the failing one stay in the database.
+     */
+    @Override
+    public void insertAll(Collection<Seller> list) {
+
+        if (list.isEmpty()) {
+            return;
+        }
+
+        Connection conn = null;
+
+        try {
+            // Borrow one connection for every chunk and manage the transactions ourselves
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+
+            List<Seller> chunk = new ArrayList<>(Math.min(batchSize, list.size()));
+            for (Seller obj : list) {
+                chunk.add(obj);
+                if (chunk.size() == batchSize) {
+                    insertChunk(conn, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(conn, chunk);
+            }
+
+        } catch (SQLException e) {
+            // If an error occurs while executing a batch, throw a custom exception
+            throw new DbException("Error executing batch insert: " + e.getMessage(), e);
+        } finally {
+            // Return the connection to the pool, which restores autocommit
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Inserts one chunk of sellers as a single batch and commits it, rolling
+     * back if the batch fails.
+     */
+    private void insertChunk(Connection conn, List<Seller> chunk) throws SQLException {
+        try {
+            insertBatch(conn, chunk);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds every seller to one INSERT batch on the given connection, executes it
+     * and copies the generated keys back into the sellers. Transaction handling
+     * is left to the caller.
+     *
+     * @param conn  The connection to run the batch on.
+     * @param chunk The sellers to insert.
+     * @throws SQLException If the batch fails.
+     */
+    void insertBatch(Connection conn, List<Seller> chunk) throws SQLException {
+
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            st = conn.prepareStatement(
+                    "INSERT INTO seller "
+                            + "(Name, Email, BirthDate, BaseSalary, DepartmentId) "
+                            + "VALUES "
+                            + "(?,?,?,?,?)",
+                    Statement.RETURN_GENERATED_KEYS);
+
+            for (Seller obj : chunk) {
+                st.setString(1, obj.getName());
+                st.setString(2, obj.getEmail());
+                st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+                st.setDouble(4, obj.getBaseSalary());
+                st.setInt(5, obj.getDepartment().getId());
+                st.addBatch();
+            }
+
+            st.executeBatch();
+
+            // The driver returns one generated key per inserted row, in batch order
+            rs = st.getGeneratedKeys();
+            for (Seller obj : chunk) {
+                if (!rs.next()) {
+                    break;
+                }
+                obj.setId(rs.getInt(1));
+            }
+
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+        }
+    }
+
+    /**
+     * Adds every seller to one UPDATE batch on the given connection and executes
+     * it. Transaction handling is left to the caller.
+     *
+     * @param conn  The connection to run the batch on.
+     * @param chunk The sellers to update.
+     * @throws SQLException If the batch fails.
+     */
+    void updateBatch(Connection conn, List<Seller> chunk) throws SQLException {
+
+        PreparedStatement st = null;
+
+        try {
+            st = conn.prepareStatement(
+                    "UPDATE seller "
+                            + "SET Name =?, Email =?, BirthDate =?, BaseSalary =?, DepartmentId =? "
+                            + "WHERE Id =?");
+
+            for (Seller obj : chunk) {
+                st.setString(1, obj.getName());
+                st.setString(2, obj.getEmail());
+                st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+                st.setDouble(4, obj.getBaseSalary());
+                st.setInt(5, obj.getDepartment().getId());
+                st.setInt(6, obj.getId());
+                st.addBatch();
+            }
+
+            st.executeBatch();
+
+        } finally {
+            DB.closeStatement(st);
+        }
+    }
+
+    /**
+     * Adds every id to one DELETE batch on the given connection and executes it.
+     * Transaction handling is left to the caller.
+     *
+     * @param conn  The connection to run the batch on.
+     * @param chunk The ids of the sellers to delete.
+     * @throws SQLException If the batch fails.
+     * @throws DbException  If one of the ids does not exist.
+     */
+    void deleteBatch(Connection conn, List<Integer> chunk) throws SQLException {
+
+        PreparedStatement st = null;
+
+        try {
+            st = conn.prepareStatement(
+                    "DELETE FROM seller "
+                            + "WHERE Id = ?");
+
+            for (Integer id : chunk) {
+                st.setInt(1, id);
+                st.addBatch();
+            }
+
+            int[] counts = st.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                // SUCCESS_NO_INFO (-2) is reported by drivers that rewrite the batch
+                if (counts[i] == 0) {
+                    throw new DbException("Error: ID not found in database: " + chunk.get(i));
+                }
+            }
+
         } finally {
-            // Close the PreparedStatement to free up resources
             DB.closeStatement(st);
         }
     }
@@ -99,10 +383,14 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public void update(Seller obj) {
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
 
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
             // Prepare the SQL statement to update a seller in the database
             st = conn.prepareStatement(
                     "UPDATE seller "
@@ -122,10 +410,11 @@ public class SellerDaoJDBC implements SellerDao {
 
         } catch (SQLException e) {
             // If an error occurs while executing the SQL query, throw a custom exception
-            throw new DbException("Error executing update: " + e.getMessage());
+            throw new DbException("Error executing update: " + e.getMessage(), e);
         } finally {
-            // Close the PreparedStatement to free up resources
+            // Close the PreparedStatement and return the connection to the pool
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
@@ -138,10 +427,14 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public void deleteById(Integer id) {
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
 
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
             // Prepare the SQL statement to delete a seller from the database
             st = conn.prepareStatement(
                     "DELETE FROM seller "
@@ -160,10 +453,11 @@ public class SellerDaoJDBC implements SellerDao {
 
         } catch (SQLException e) {
             // If an error occurs while executing the SQL query, throw a custom exception
-            throw new DbException("Error executing delete: " + e.getMessage());
+            throw new DbException("Error executing delete: " + e.getMessage(), e);
         } finally {
-            // Close the PreparedStatement to free up resources
+            // Close the PreparedStatement and return the connection to the pool
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
@@ -177,29 +471,34 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public Seller findById(Integer id) {
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
 
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
             // Prepare the SQL statement to retrieve a seller by their unique identifier
-            st = conn.prepareStatement(
-                    "SELECT seller.*,department.Name as DepName "
-                            + "FROM seller INNER JOIN department "
-                            + "ON seller.DepartmentId = department.Id "
-                            + "WHERE seller.Id =?");
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "WHERE seller.Id =?";
+            st = conn.prepareStatement(sql);
 
             // Set the seller ID parameter in the SQL statement
             st.setInt(1, id);
 
             // Execute the SQL query and retrieve the result set
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
 
             // If a seller is found, instantiate a Seller object and return it
             if (rs.next()) {
 
-                Department dep = instantiateDepartment(rs);
-                Seller obj = instantiateSeller(rs, dep);
+                Department dep = mapper.department(rs, departments);
+                Seller obj = mapper.seller(rs, dep);
                 return obj;
 
             }
@@ -210,52 +509,93 @@ public class SellerDaoJDBC implements SellerDao {
         } catch (SQLException e) {
 
             // If an error occurs while executing the SQL query, throw a custom exception
-            throw new DbException(e.getMessage());
+            throw new DbException(e.getMessage(), e);
 
         } finally {
 
-            // Close the statement and result set to free up resources
+            // Close the statement and result set and return the connection to the pool
             DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeConnection(conn);
 
         }
     }
 
     /**
-     * This method instantiates a Seller object from the given ResultSet and a
-     * Department object.
-     *
-     * @param rs  The ResultSet containing the seller data.
-     * @param dep The Department object associated with the seller.
-     * @return The Seller object instantiated from the ResultSet and Department
-     *         object.
-     * @throws SQLException If an error occurs while retrieving data from the
-     *                      ResultSet.
-     */
-    private Seller instantiateSeller(ResultSet rs, Department dep) throws SQLException {
-        Seller obj = new Seller();
-        obj.setId(rs.getInt("Id"));
-        obj.setName(rs.getString("Name"));
-        obj.setEmail(rs.getString("Email"));
-        obj.setBirthDate(rs.getDate("BirthDate"));
-        obj.setBaseSalary(rs.getDouble("BaseSalary"));
-        obj.setDepartment(dep);
-        return obj;
-    }
-
-    /**
-     * This method instantiates a Department object from the given ResultSet.
+     * This method retrieves many sellers by id with as few queries as possible.
+     * The ids are split into IN lists of the configured size.
      *
-     * @param rs The ResultSet containing the department data.
-     * @return The Department object instantiated from the ResultSet.
-     * @throws SQLException If an error occurs while retrieving data from the
-     *                      ResultSet.
+     * @param ids The ids to look up; duplicates and nulls are ignored.
+     * @return The sellers found, keyed by id, in the order the ids were given.
+     *         Ids with no seller are absent from the map.
+     * @throws DbException If an error occurs while executing the SQL query.
      */
-    private Department instantiateDepartment(ResultSet rs) throws SQLException {
-        Department dep = new Department();
-        dep.setId(rs.getInt("DepartmentId"));
-        dep.setName(rs.getString("DepName"));
-        return dep;
+    @Override
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids) {
+
+        // Remove duplicates while keeping the lookup order
+        List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        unique.remove(null);
+        if (unique.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        Connection conn = null;
+        Map<Integer, Seller> found = new HashMap<>(unique.size() * 2);
+
+        try {
+
+            // Borrow a connection from the pool for every chunk of ids
+            conn = readDataSource.getConnection();
+
+            for (int from = 0; from < unique.size(); from += inListSize) {
+                List<Integer> chunk = unique.subList(from, Math.min(from + inListSize, unique.size()));
+                findChunk(conn, chunk, found);
+            }
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeConnection(conn);
+        }
+
+        // Rebuild the result in lookup order
+        Map<Integer, Seller> result = new LinkedHashMap<>(found.size() * 2);
+        for (Integer id : unique) {
+            Seller obj = found.get(id);
+            if (obj != null) {
+                result.put(id, obj);
+            }
+        }
+        return result;
+    }
+
+    private void findChunk(Connection conn, List<Integer> chunk, Map<Integer, Seller> found) throws SQLException {
+
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            int size = InClause.paddedSize(chunk.size(), inListSize);
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "WHERE seller.Id IN (" + InClause.placeholders(size) + ")";
+            st = conn.prepareStatement(sql);
+            InClause.bind(st, 1, chunk, size);
+
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
+
+            while (rs.next()) {
+                Department dep = mapper.department(rs, departments);
+                Seller obj = mapper.seller(rs, dep);
+                found.put(obj.getId(), obj);
+            }
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+        }
     }
 
     /**
@@ -268,39 +608,38 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public List<Seller> findAll() {
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
 
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
             // Prepare the SQL statement to retrieve all seller's information and sort them
             // by name.
-            st = conn.prepareStatement(
-                    "SELECT seller.*,department.Name as DepName "
-                            + "FROM seller INNER JOIN department "
-                            + "ON seller.DepartmentId = department.Id "
-                            + "ORDER BY Name");
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "ORDER BY Name";
+            st = conn.prepareStatement(sql);
 
             // Execute the SQL query and retrieve the result set
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
 
-            // Initialize a list to store the sellers and a map to store unique departments
+            // Initialize a list to store the sellers
             List<Seller> list = new ArrayList<>();
-            Map<Integer, Department> map = new HashMap<>();
 
             // Iterate through the result set and create Seller objects
             while (rs.next()) {
 
-                // Retrieve the department from the map or create a new one if it doesn't exist
-                Department dep = map.get(rs.getInt("DepartmentId"));
-
-                if (dep == null) {
-                    dep = instantiateDepartment(rs);
-                    map.put(rs.getInt("DepartmentId"), dep);
-                }
+                // Resolve the canonical department shared by every seller graph
+                Department dep = mapper.department(rs, departments);
 
                 // Create a Seller object and add it to the list
-                Seller obj = instantiateSeller(rs, dep);
+                Seller obj = mapper.seller(rs, dep);
                 list.add(obj);
 
             }
@@ -311,16 +650,188 @@ public class SellerDaoJDBC implements SellerDao {
         } catch (SQLException e) {
 
             // Throw a custom exception if an error occurs while executing the SQL query
-            throw new DbException(e.getMessage());
+            throw new DbException(e.getMessage(), e);
+
+        } finally {
+
+            // Close the statement and result set and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+
+    }
+
+    /**
+     * This method streams all sellers from the database, sorted by name, without
+     * loading the whole result into memory. Rows are read through a forward-only,
+     * read-only cursor as the stream is consumed.
+     *
+     * The stream holds a pooled connection until it is exhausted or closed, so
+     * it should be used in a try-with-resources block.
+     *
+     * @return A lazily populated stream of sellers.
+     * @throws DbException If an error occurs while executing the SQL query or
+     *                     reading a row.
+     */
+    @Override
+    public Stream<Seller> streamAll() {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        boolean handedOver = false;
+
+        try {
+
+            // Borrow a connection; it stays checked out until the stream is closed
+            conn = readDataSource.getConnection();
+
+            // Prepare a forward-only, read-only statement so the driver can stream rows
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "ORDER BY Name";
+            st = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(fetchSize);
+
+            // Execute the SQL query; rows are pulled from the server as the stream advances
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
+
+            SellerCursor cursor = new SellerCursor(conn, st, rs, mapper, Deadline.current());
+            Stream<Seller> stream = StreamSupport.stream(cursor, false).onClose(cursor::close);
+            handedOver = true;
+            return stream;
+
+        } catch (SQLException e) {
+
+            // Throw a custom exception if an error occurs while executing the SQL query
+            throw new DbException(e.getMessage(), e);
+
+        } finally {
+
+            // Release whatever was acquired unless the stream now owns it; this also
+            // covers a DbTimeoutException thrown by the pool or the statement
+            if (!handedOver) {
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+                DB.closeConnection(conn);
+            }
+
+        }
+    }
+
+    /**
+     * This method loads every seller into a columnar {@link SellerTable} for
+     * analytical scans. Rows are streamed from the same joined query as
+     * {@link #findAll()} straight into primitive column arrays, so no Seller or
+     * Department objects are created.
+     *
+     * @return The sellers sorted by name, in columnar form.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public SellerTable findAllAsTable() {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            // Stream rows from the server instead of buffering the whole result in the driver
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "ORDER BY Name";
+            st = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(fetchSize);
 
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
+
+            // Append each row to the column arrays
+            SellerTable.Builder table = new SellerTable.Builder();
+            while (rs.next()) {
+                mapper.addTo(rs, table);
+            }
+            return table.build();
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
         } finally {
 
-            // Close the statement and result set to free up resources
+            // Close the statement and result set and return the connection to the pool
             DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+    }
+
+    /**
+     * Spliterator over an open seller result set. It releases the result set,
+     * statement and connection as soon as the last row has been read, or when
+     * the owning stream is closed, whichever comes first.
+     */
+    private class SellerCursor extends Spliterators.AbstractSpliterator<Seller> {
+
+        private final Connection conn;
+        private final PreparedStatement st;
+        private final ResultSet rs;
+        private final SellerRowMapper mapper;
+        private final Deadline deadline;
+        private boolean closed = false;
+
+        SellerCursor(Connection conn, PreparedStatement st, ResultSet rs, SellerRowMapper mapper,
+                Deadline deadline) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.st = st;
+            this.rs = rs;
+            this.mapper = mapper;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Seller> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
 
+                Department dep = mapper.department(rs, departments);
+                action.accept(mapper.seller(rs, dep));
+                return true;
+
+            } catch (SQLException e) {
+                close();
+                // The statement stays armed while rows are read, a failure past the deadline is its cancel
+                throw Deadline.failure(deadline, e);
+            }
         }
 
+        void close() {
+            if (!closed) {
+                closed = true;
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+                DB.closeConnection(conn);
+            }
+        }
     }
 
     /**
@@ -334,43 +845,42 @@ public class SellerDaoJDBC implements SellerDao {
     @Override
     public List<Seller> findByDepartment(Department department) {
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
 
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
             // Prepare the SQL statement to retrieve sellers associated with a specific
             // department
-            st = conn.prepareStatement(
-                    "SELECT seller.*,department.Name as DepName "
-                            + "FROM seller INNER JOIN department "
-                            + "ON seller.DepartmentId = department.Id "
-                            + "WHERE DepartmentId =? "
-                            + "ORDER BY Name");
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + "WHERE DepartmentId =? "
+                    + "ORDER BY Name";
+            st = conn.prepareStatement(sql);
 
             // Set the department ID parameter in the SQL statement
             st.setInt(1, department.getId());
 
             // Execute the SQL query and retrieve the result set
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
 
-            // Initialize a list to store the sellers and a map to store unique departments
+            // Initialize a list to store the sellers
             List<Seller> list = new ArrayList<>();
-            Map<Integer, Department> map = new HashMap<>();
 
             // Iterate through the result set and create Seller objects
             while (rs.next()) {
 
-                // Retrieve the department from the map or create a new one if it doesn't exist
-                Department dep = map.get(rs.getInt("DepartmentId"));
-
-                if (dep == null) {
-                    dep = instantiateDepartment(rs);
-                    map.put(rs.getInt("DepartmentId"), dep);
-                }
+                // Resolve the canonical department shared by every seller graph
+                Department dep = mapper.department(rs, departments);
 
                 // Create a Seller object and add it to the list
-                Seller obj = instantiateSeller(rs, dep);
+                Seller obj = mapper.seller(rs, dep);
                 list.add(obj);
 
             }
@@ -381,14 +891,652 @@ public class SellerDaoJDBC implements SellerDao {
         } catch (SQLException e) {
 
             // Throw a custom exception if an error occurs while executing the SQL query
-            throw new DbException(e.getMessage());
+            throw new DbException(e.getMessage(), e);
 
         } finally {
 
-            // Close the statement and result set to free up resources
+            // Close the statement and result set and return the connection to the pool
             DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeConnection(conn);
 
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * This method retrieves one page of sellers sorted by name, using keyset
+     * pagination: the next page starts right after the (Name, Id) of the last
+     * seller returned, so deep pages cost the same as the first one.
+     *
+     * @param pageSize          The maximum number of sellers on the page.
+     * @param continuationToken The token from the previous page, or null for the
+     *                          first page.
+     * @return The page of sellers and the token for the next page.
+     * @throws DbException If an error occurs while executing the SQL query or the
+     *                     token is malformed.
+     */
+    @Override
+    public Page<Seller> findPage(int pageSize, String continuationToken) {
+        return queryPage(null, pageSize, continuationToken);
+    }
+
+    /**
+     * This method retrieves one page of the sellers of a department sorted by
+     * name, using keyset pagination on (Name, Id).
+     *
+     * @param department        The department for which to retrieve sellers.
+     * @param pageSize          The maximum number of sellers on the page.
+     * @param continuationToken The token from the previous page, or null for the
+     *                          first page.
+     * @return The page of sellers and the token for the next page.
+     * @throws DbException If an error occurs while executing the SQL query or the
+     *                     token is malformed.
+     */
+    @Override
+    public Page<Seller> findPageByDepartment(Department department, int pageSize, String continuationToken) {
+        return queryPage(department.getId(), pageSize, continuationToken);
+    }
+
+    private Page<Seller> queryPage(Integer departmentId, int pageSize, String continuationToken) {
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Decode where the previous page stopped, if there was one
+            String lastName = null;
+            int lastId = 0;
+            if (continuationToken != null) {
+                String key = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+                int sep = key.indexOf(':');
+                if (sep < 0) {
+                    throw new DbException("Invalid continuation token");
+                }
+                lastId = Integer.parseInt(key.substring(0, sep));
+                lastName = key.substring(sep + 1);
+            }
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            // Seek past the last (Name, Id) instead of skipping rows with OFFSET
+            List<String> conditions = new ArrayList<>(2);
+            if (departmentId != null) {
+                conditions.add("seller.DepartmentId =?");
+            }
+            if (lastName != null) {
+                conditions.add("(seller.Name > ? OR (seller.Name = ? AND seller.Id > ?))");
+            }
+            String sql = "SELECT seller.*,department.Name as DepName "
+                    + "FROM seller INNER JOIN department "
+                    + "ON seller.DepartmentId = department.Id "
+                    + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ")
+                    + "ORDER BY seller.Name, seller.Id "
+                    + "LIMIT ?";
+            st = conn.prepareStatement(sql);
+
+            int p = 1;
+            if (departmentId != null) {
+                st.setInt(p++, departmentId);
+            }
+            if (lastName != null) {
+                st.setString(p++, lastName);
+                st.setString(p++, lastName);
+                st.setInt(p++, lastId);
+            }
+            // Ask for one extra row to know whether another page follows
+            st.setInt(p, pageSize + 1);
+
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.forQuery(sql, rs);
+
+            List<Seller> list = new ArrayList<>(pageSize);
+            boolean more = false;
+
+            while (rs.next()) {
+                if (list.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+
+                Department dep = mapper.department(rs, departments);
+                list.add(mapper.seller(rs, dep));
+            }
+
+            String nextToken = null;
+            if (more) {
+                Seller last = list.get(list.size() - 1);
+                nextToken = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        (last.getId() + ":" + last.getName()).getBytes(StandardCharsets.UTF_8));
+            }
+            return new Page<>(list, nextToken);
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            // Base64 or number decoding failed
+            throw new DbException("Invalid continuation token: " + e.getMessage(), e);
+        } finally {
+
+            // Close the statement and result set and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+    }
+
+    /**
+     * This method computes headcount and base salary statistics per department
+     * with a GROUP BY in the database, so only one row per department crosses
+     * the wire.
+     *
+     * @return One summary per department that has sellers, sorted by department
+     *         name.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public List<DepartmentSalaryStats> salaryStatsByDepartment() {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            // Let the database aggregate the salaries of each department
+            st = conn.prepareStatement(
+                    "SELECT department.Id, department.Name, COUNT(*), SUM(seller.BaseSalary), "
+                            + "AVG(seller.BaseSalary), MIN(seller.BaseSalary), MAX(seller.BaseSalary) "
+                            + "FROM seller INNER JOIN department "
+                            + "ON seller.DepartmentId = department.Id "
+                            + "GROUP BY department.Id, department.Name "
+                            + "ORDER BY department.Name");
+
+            rs = st.executeQuery();
+
+            List<DepartmentSalaryStats> list = new ArrayList<>();
+            while (rs.next()) {
+                Department dep = departments.resolve(rs.getInt(1), rs.getString(2));
+                list.add(new DepartmentSalaryStats(dep, rs.getInt(3), rs.getDouble(4), rs.getDouble(5),
+                        rs.getDouble(6), rs.getDouble(7)));
+            }
+            return list;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+
+            // Close the statement and result set and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+    }
+
+    /**
+     * This method counts the sellers of a department in the database.
+     *
+     * @param department The department whose sellers are counted.
+     * @return The number of sellers in the department.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public int countByDepartment(Department department) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            st = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM seller "
+                            + "WHERE DepartmentId =?");
+            st.setInt(1, department.getId());
+
+            rs = st.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+
+            // Close the statement and result set and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+    }
+
+    /**
+     * Multiplies the base salary of every seller of a department by a factor
+     * with a single UPDATE, without reading the sellers first.
+     *
+     * @param department The department whose sellers are adjusted.
+     * @param factor     The multiplier, for example 1.05 for a 5% raise.
+     * @return The number of sellers updated.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public int adjustSalaryByDepartment(Department department, double factor) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
+            st = conn.prepareStatement(
+                    "UPDATE seller "
+                            + "SET BaseSalary = BaseSalary * ? "
+                            + "WHERE DepartmentId = ?");
+            st.setDouble(1, factor);
+            st.setInt(2, department.getId());
+
+            return st.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DbException("Error executing salary adjustment: " + e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Moves every seller of one department to another with a single UPDATE.
+     *
+     * @param from The department the sellers currently belong to.
+     * @param to   The department they are moved to.
+     * @return The number of sellers moved.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public int moveSellers(Department from, Department to) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
+            st = conn.prepareStatement(
+                    "UPDATE seller "
+                            + "SET DepartmentId = ? "
+                            + "WHERE DepartmentId = ?");
+            st.setInt(1, to.getId());
+            st.setInt(2, from.getId());
+
+            return st.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DbException("Error moving sellers: " + e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Deletes the sellers with the given ids using {@code DELETE ... WHERE Id IN
+     * (...)} statements of at most {@code inListSize} ids each. Every chunk is
+     * committed on its own, so a failure leaves the earlier chunks deleted.
+     * Ids that do not exist are ignored.
+     *
+     * @param ids The ids of the sellers to delete.
+     * @return The number of sellers deleted.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public int deleteByIds(Collection<Integer> ids) {
+
+        List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        unique.remove(null);
+        if (unique.isEmpty()) {
+            return 0;
+        }
+
+        Connection conn = null;
+        int deleted = 0;
+
+        try {
+
+            // Borrow one connection for every chunk and manage the transactions ourselves
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+
+            for (int from = 0; from < unique.size(); from += inListSize) {
+                List<Integer> chunk = unique.subList(from, Math.min(from + inListSize, unique.size()));
+                deleted += deleteChunk(conn, chunk);
+            }
+            return deleted;
+
+        } catch (SQLException e) {
+            throw new DbException("Error executing bulk delete: " + e.getMessage(), e);
+        } finally {
+            // Return the connection to the pool, which restores autocommit
+            DB.closeConnection(conn);
+        }
+    }
+
+    private int deleteChunk(Connection conn, List<Integer> chunk) throws SQLException {
+
+        PreparedStatement st = null;
+
+        try {
+            // Padding repeats the last id, which deletes nothing more
+            int size = InClause.paddedSize(chunk.size(), inListSize);
+            st = conn.prepareStatement(
+                    "DELETE FROM seller "
+                            + "WHERE Id IN (" + InClause.placeholders(size) + ")");
+            InClause.bind(st, 1, chunk, size);
+
+            int rows = st.executeUpdate();
+            conn.commit();
+            return rows;
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            DB.closeStatement(st);
+        }
+    }
+
+    /**
+     * Writes only the columns whose values differ between two versions of a
+     * seller, for example the copy read from the database and the copy edited
+     * by the user. Nothing is sent when no column changed.
+     *
+     * @param original The seller as last read from the database.
+     * @param modified The same seller with its new values; its id selects the
+     *                 row.
+     * @return Whether an UPDATE was executed.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public boolean updateChanged(Seller original, Seller modified) {
+
+        List<String> columns = new ArrayList<>(5);
+        List<Object> values = new ArrayList<>(5);
+
+        if (!Objects.equals(original.getName(), modified.getName())) {
+            columns.add("Name");
+            values.add(modified.getName());
+        }
+        if (!Objects.equals(original.getEmail(), modified.getEmail())) {
+            columns.add("Email");
+            values.add(modified.getEmail());
+        }
+        if (!sameDate(original.getBirthDate(), modified.getBirthDate())) {
+            columns.add("BirthDate");
+            values.add(modified.getBirthDate() == null ? null
+                    : new java.sql.Date(modified.getBirthDate().getTime()));
+        }
+        if (!Objects.equals(original.getBaseSalary(), modified.getBaseSalary())) {
+            columns.add("BaseSalary");
+            values.add(modified.getBaseSalary());
+        }
+        if (!Objects.equals(departmentId(original), departmentId(modified))) {
+            columns.add("DepartmentId");
+            values.add(departmentId(modified));
+        }
+
+        if (columns.isEmpty()) {
+            return false;
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = dataSource.getConnection();
+
+            // One SQL text per combination of changed columns, each reused by the statement cache
+            st = conn.prepareStatement(
+                    "UPDATE seller "
+                            + "SET " + String.join(" = ?, ", columns) + " = ? "
+                            + "WHERE Id = ?");
+            for (int i = 0; i < values.size(); i++) {
+                st.setObject(i + 1, values.get(i));
+            }
+            st.setInt(values.size() + 1, modified.getId());
+
+            st.executeUpdate();
+            return true;
+
+        } catch (SQLException e) {
+            throw new DbException("Error executing update: " + e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private static boolean sameDate(java.util.Date a, java.util.Date b) {
+        return a == null ? b == null : b != null && a.getTime() == b.getTime();
+    }
+
+    private static Integer departmentId(Seller obj) {
+        return obj.getDepartment() == null ? null : obj.getDepartment().getId();
+    }
+
+    /**
+     * Retrieves the id, name and email of every seller, sorted by name, without
+     * joining the department table.
+     *
+     * @return The seller summaries.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public List<SellerSummary> findAllSummaries() {
+        return querySummaries(null);
+    }
+
+    /**
+     * Retrieves the id, name and email of the sellers of a department, sorted by
+     * name, without joining the department table.
+     *
+     * @param department The department whose sellers are read.
+     * @return The seller summaries.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public List<SellerSummary> findSummariesByDepartment(Department department) {
+        return querySummaries(department.getId());
+    }
+
+    private List<SellerSummary> querySummaries(Integer departmentId) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            st = conn.prepareStatement(
+                    "SELECT Id, Name, Email FROM seller "
+                            + (departmentId != null ? "WHERE DepartmentId = ? " : "")
+                            + "ORDER BY Name");
+            if (departmentId != null) {
+                st.setInt(1, departmentId);
+            }
+
+            rs = st.executeQuery();
+
+            List<SellerSummary> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(new SellerSummary(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+            return list;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Retrieves every seller, sorted by name, reading only the given columns.
+     * The id is always read; the other fields of the returned sellers stay null.
+     * When {@link SellerColumn#DEPARTMENT_ID} is selected the department table is
+     * still not joined: each seller gets the canonical department of its id if
+     * one is already in memory, and otherwise a {@link LazyDepartment} whose name
+     * is read on first access.
+     *
+     * @param columns The columns to read.
+     * @return The partially filled sellers.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public List<Seller> findAll(Set<SellerColumn> columns) {
+        return queryProjection(null, columns);
+    }
+
+    /**
+     * Retrieves the sellers of a department, sorted by name, reading only the
+     * given columns, like {@link #findAll(Set)}.
+     *
+     * @param department The department whose sellers are read.
+     * @param columns    The columns to read.
+     * @return The partially filled sellers.
+     * @throws DbException If an error occurs while executing the SQL query.
+     */
+    @Override
+    public List<Seller> findByDepartment(Department department, Set<SellerColumn> columns) {
+        return queryProjection(department.getId(), columns);
+    }
+
+    private List<Seller> queryProjection(Integer departmentId, Set<SellerColumn> columns) {
+
+        // Enum order keeps one SQL text per column subset for the statement cache
+        EnumSet<SellerColumn> selected = EnumSet.of(SellerColumn.ID);
+        selected.addAll(columns);
+        SellerColumn[] order = selected.toArray(new SellerColumn[0]);
+
+        List<String> names = new ArrayList<>(order.length);
+        for (SellerColumn column : order) {
+            names.add(column.getColumnName());
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+
+            // Borrow a connection from the pool for the duration of this operation
+            conn = readDataSource.getConnection();
+
+            st = conn.prepareStatement(
+                    "SELECT " + String.join(", ", names) + " FROM seller "
+                            + (departmentId != null ? "WHERE DepartmentId = ? " : "")
+                            + "ORDER BY Name");
+            if (departmentId != null) {
+                st.setInt(1, departmentId);
+            }
+
+            rs = st.executeQuery();
+
+            // One lazy department per id for the whole result
+            Map<Integer, Department> lazy = new HashMap<>();
+            List<Seller> list = new ArrayList<>();
+            while (rs.next()) {
+                Seller obj = new Seller();
+                for (int i = 0; i < order.length; i++) {
+                    int index = i + 1;
+                    switch (order[i]) {
+                        case ID:
+                            obj.setId(rs.getInt(index));
+                            break;
+                        case NAME:
+                            obj.setName(rs.getString(index));
+                            break;
+                        case EMAIL:
+                            obj.setEmail(rs.getString(index));
+                            break;
+                        case BIRTH_DATE:
+                            obj.setBirthDate(rs.getDate(index));
+                            break;
+                        case BASE_SALARY:
+                            obj.setBaseSalary(rs.getDouble(index));
+                            break;
+                        case DEPARTMENT_ID:
+                            obj.setDepartment(lazyDepartment(rs.getInt(index), lazy));
+                            break;
+                    }
+                }
+                list.add(obj);
+            }
+            return list;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private Department lazyDepartment(Integer id, Map<Integer, Department> lazy) {
+        Department canonical = departments.get(id);
+        if (canonical != null) {
+            return canonical;
+        }
+        return lazy.computeIfAbsent(id, key -> new LazyDepartment(key, this::loadDepartment));
+    }
+
+    /**
+     * Reads one department for a {@link LazyDepartment} and registers it in the
+     * identity map.
+     */
+    private Department loadDepartment(Integer id) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readDataSource.getConnection();
+            st = conn.prepareStatement("SELECT Id, Name FROM department WHERE Id = ?");
+            st.setInt(1, id);
+            rs = st.executeQuery();
+            return rs.next() ? departments.resolve(rs.getInt(1), rs.getString(2)) : null;
+
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage(), e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+        }
+    }
+}
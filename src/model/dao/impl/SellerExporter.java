@@ -0,0 +1,341 @@
+package model.dao.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import db.DbTimeoutException;
+import db.Deadline;
+import model.entities.Department;
+
+/**
+ * Exports sellers with their department as CSV or JSON lines, straight from the
+ * database cursor into a {@link WritableByteChannel}.
+ *
+ * Rows are streamed from the same joined query as
+ * {@link SellerDaoJDBC#streamAll()} and each column is formatted as it is read,
+ * so no Seller or Department objects are created and the table is never held
+ * in memory. Every row is formatted into one reused character buffer, encoded
+ * as UTF-8 into one reused byte buffer and written to the channel whenever
+ * that buffer fills up.
+ *
+ * CSV output starts with the header
+ * {@code Id,Name,Email,BirthDate,BaseSalary,DepartmentId,DepartmentName};
+ * fields are quoted as in RFC 4180 when needed and nulls are left empty. JSON
+ * lines output has one object per line:
+ *
+ * <pre>
+ * {"id":1,"name":"Bob Brown","email":"bob@gmail.com","birthDate":"1998-04-21","baseSalary":1000.0,"department":{"id":1,"name":"Computers"}}
+ * </pre>
+ *
+ * Birth dates are written as {@code yyyy-MM-dd} in both formats, without the
+ * time of day of the DATETIME column.
+ *
+ * The channel is neither opened nor closed by the exporter.
+ */
+public class SellerExporter {
+
+    /**
+     * Output format of an export.
+     */
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CSV_HEADER = "Id,Name,Email,BirthDate,BaseSalary,DepartmentId,DepartmentName\n";
+
+    // Explicit columns so rows are read by index without a label lookup
+    private static final String SELECT = "SELECT seller.Id, seller.Name, seller.Email, seller.BirthDate, "
+            + "seller.BaseSalary, seller.DepartmentId, department.Name "
+            + "FROM seller INNER JOIN department "
+            + "ON seller.DepartmentId = department.Id ";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+    private final int bufferSize;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param dataSource The data source queries use, typically the read
+     *                   replicas.
+     * @param fetchSize  The JDBC fetch size hint;
+     *                   {@link SellerDaoJDBC#STREAMING_FETCH_SIZE} makes MySQL
+     *                   stream rows one by one.
+     * @param bufferSize The size of the byte buffer written to the channel.
+     */
+    public SellerExporter(DataSource dataSource, int fetchSize, int bufferSize) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+        this.bufferSize = Math.max(1024, bufferSize);
+    }
+
+    /**
+     * Exports every seller, sorted by name like {@code findAll()}.
+     *
+     * @param out    The channel the export is written to.
+     * @param format The output format.
+     * @return The number of sellers exported.
+     * @throws DbException If an error occurs while executing the SQL query,
+     *                     reading a row or writing to the channel; a
+     *                     {@link DbTimeoutException} if the current
+     *                     {@link Deadline} passed.
+     */
+    public long exportAll(WritableByteChannel out, Format format) {
+        return export(SELECT + "ORDER BY seller.Name", null, out, format);
+    }
+
+    /**
+     * Exports the sellers of one department, sorted by name like
+     * {@code findByDepartment()}.
+     *
+     * @param department The department whose sellers are exported.
+     * @param out        The channel the export is written to.
+     * @param format     The output format.
+     * @return The number of sellers exported.
+     * @throws DbException If an error occurs while executing the SQL query,
+     *                     reading a row or writing to the channel; a
+     *                     {@link DbTimeoutException} if the current
+     *                     {@link Deadline} passed.
+     */
+    public long exportByDepartment(Department department, WritableByteChannel out, Format format) {
+        return export(SELECT + "WHERE seller.DepartmentId = ? ORDER BY seller.Name", department.getId(), out, format);
+    }
+
+    private long export(String sql, Integer departmentId, WritableByteChannel out, Format format) {
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        Deadline deadline = Deadline.current();
+
+        try {
+
+            // Borrow a connection from the pool for the duration of the export
+            conn = dataSource.getConnection();
+
+            // Forward-only, read-only statement so the driver can stream rows
+            st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(fetchSize);
+            if (departmentId != null) {
+                st.setInt(1, departmentId);
+            }
+
+            rs = st.executeQuery();
+
+            RowWriter writer = new RowWriter(out);
+            if (format == Format.CSV) {
+                writer.line.append(CSV_HEADER);
+                writer.endRow();
+            }
+
+            long count = 0;
+            while (rs.next()) {
+                if (format == Format.CSV) {
+                    writer.csvRow(rs);
+                } else {
+                    writer.jsonRow(rs);
+                }
+                count++;
+            }
+            writer.flush();
+            return count;
+
+        } catch (SQLException e) {
+            // If an error occurs while reading the rows, throw a custom exception; past the
+            // deadline it is the statement's cancel and reported as a timeout
+            throw Deadline.failure(deadline, e);
+        } catch (IOException e) {
+            throw new DbException("Error writing export: " + e.getMessage(), e);
+        } finally {
+
+            // Close the statement and result set and return the connection to the pool
+            DB.closeStatement(st);
+            DB.closeResultSet(rs);
+            DB.closeConnection(conn);
+
+        }
+    }
+
+    /**
+     * Formats rows into a reused character buffer and encodes them into a
+     * reused byte buffer that is drained to the channel when full.
+     */
+    private final class RowWriter {
+
+        private final WritableByteChannel out;
+        private final StringBuilder line = new StringBuilder(256);
+        private final ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] chars = new char[256];
+        private CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+        RowWriter(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        void csvRow(ResultSet rs) throws SQLException, IOException {
+            line.append(rs.getInt(1)).append(',');
+            csvField(rs.getString(2));
+            line.append(',');
+            csvField(rs.getString(3));
+            line.append(',');
+            // BirthDate is a DATETIME; read as a date it prints as yyyy-MM-dd
+            Date birthDate = rs.getDate(4);
+            if (birthDate != null) {
+                line.append(birthDate);
+            }
+            line.append(',');
+            double salary = rs.getDouble(5);
+            if (!rs.wasNull()) {
+                line.append(salary);
+            }
+            line.append(',').append(rs.getInt(6)).append(',');
+            csvField(rs.getString(7));
+            line.append('\n');
+            endRow();
+        }
+
+        void jsonRow(ResultSet rs) throws SQLException, IOException {
+            line.append("{\"id\":").append(rs.getInt(1));
+            line.append(",\"name\":");
+            jsonString(rs.getString(2));
+            line.append(",\"email\":");
+            jsonString(rs.getString(3));
+            line.append(",\"birthDate\":");
+            Date birthDate = rs.getDate(4);
+            if (birthDate == null) {
+                line.append("null");
+            } else {
+                line.append('"').append(birthDate).append('"');
+            }
+            line.append(",\"baseSalary\":");
+            double salary = rs.getDouble(5);
+            if (rs.wasNull()) {
+                line.append("null");
+            } else {
+                line.append(salary);
+            }
+            line.append(",\"department\":{\"id\":").append(rs.getInt(6));
+            line.append(",\"name\":");
+            jsonString(rs.getString(7));
+            line.append("}}\n");
+            endRow();
+        }
+
+        private void csvField(String value) {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        private void jsonString(String value) {
+            if (value == null) {
+                line.append("null");
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        line.append("\\\"");
+                        break;
+                    case '\\':
+                        line.append("\\\\");
+                        break;
+                    case '\n':
+                        line.append("\\n");
+                        break;
+                    case '\r':
+                        line.append("\\r");
+                        break;
+                    case '\t':
+                        line.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                        } else {
+                            line.append(c);
+                        }
+                        break;
+                }
+            }
+            line.append('"');
+        }
+
+        /**
+         * Encodes the formatted row into the byte buffer, draining the buffer to
+         * the channel whenever it fills up, and clears the row for the next one.
+         */
+        void endRow() throws IOException {
+            int length = line.length();
+            if (length > chars.length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+                charBuffer = CharBuffer.wrap(chars);
+            }
+            line.getChars(0, length, chars, 0);
+            line.setLength(0);
+            charBuffer.limit(length).position(0);
+
+            // Malformed surrogates are replaced, so encoding only ever stops for a full buffer
+            encoder.reset();
+            while (encoder.encode(charBuffer, bytes, true).isOverflow()) {
+                drain();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import model.entities.Department;
+import model.entities.Seller;
+import model.entities.SellerTable;
+
+/**
+ * Maps rows of the seller/department join to Seller graphs by column index.
+ */
+final class SellerRowMapper implements RowMapperCache.Compiled {
+
+    private final int columnCount;
+    private final int id;
+    private final int name;
+    private final int email;
+    private final int birthDate;
+    private final int baseSalary;
+    private final int departmentId;
+    private final int depName;
+
+    private SellerRowMapper(ResultSetMetaData md) throws SQLException {
+        this.columnCount = md.getColumnCount();
+        this.id = RowMapperCache.requireIndex(md, "Id");
+        this.name = RowMapperCache.requireIndex(md, "Name");
+        this.email = RowMapperCache.requireIndex(md, "Email");
+        this.birthDate = RowMapperCache.requireIndex(md, "BirthDate");
+        this.baseSalary = RowMapperCache.requireIndex(md, "BaseSalary");
+        this.departmentId = RowMapperCache.requireIndex(md, "DepartmentId");
+        this.depName = RowMapperCache.requireIndex(md, "DepName");
+    }
+
+    static SellerRowMapper compile(ResultSetMetaData md) throws SQLException {
+        return new SellerRowMapper(md);
+    }
+
+    @Override
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Instantiates a Seller from the current row.
+     *
+     * @param rs  The ResultSet positioned on the row.
+     * @param dep The Department the seller belongs to.
+     * @return The Seller read from the row.
+     * @throws SQLException If an error occurs while retrieving data from the
+     *                      ResultSet.
+     */
+    Seller seller(ResultSet rs, Department dep) throws SQLException {
+        Seller obj = new Seller();
+        obj.setId(rs.getInt(id));
+        obj.setName(rs.getString(name));
+        obj.setEmail(rs.getString(email));
+        obj.setBirthDate(rs.getDate(birthDate));
+        obj.setBaseSalary(rs.getDouble(baseSalary));
+        obj.setDepartment(dep);
+        return obj;
+    }
+
+    /**
+     * Resolves the Department of the current row through the identity map, so
+     * every seller of a department points at the same instance.
+     *
+     * @param rs          The ResultSet positioned on the row.
+     * @param departments The identity map holding the canonical departments.
+     * @return The canonical Department for the row's department id.
+     * @throws SQLException If an error occurs while retrieving data from the
+     *                      ResultSet.
+     */
+    Department department(ResultSet rs, DepartmentIdentityMap departments) throws SQLException {
+        return departments.resolve(rs.getInt(departmentId), rs.getString(depName));
+    }
+
+    /**
+     * Appends the current row to a columnar table without building a Seller.
+     *
+     * @param rs    The ResultSet positioned on the row.
+     * @param table The table being filled.
+     * @throws SQLException If an error occurs while retrieving data from the
+     *                      ResultSet.
+     */
+    void addTo(ResultSet rs, SellerTable.Builder table) throws SQLException {
+        java.sql.Date date = rs.getDate(birthDate);
+        table.add(rs.getInt(id),
+                rs.getString(name),
+                rs.getString(email),
+                date == null ? SellerTable.NULL_DATE : (int) date.toLocalDate().toEpochDay(),
+                rs.getDouble(baseSalary),
+                rs.getInt(departmentId),
+                rs.getString(depName));
+    }
+}
@@ -0,0 +1,403 @@
+package model.dao.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import db.DbException;
+import model.entities.Department;
+import model.entities.Seller;
+import model.entities.SellerSummary;
+
+/**
+ * Read-only, memory-mapped binary copy of the seller and department tables.
+ *
+ * The file holds a fixed 64-byte header followed by four sections:
+ * <ul>
+ * <li>departments: 8-byte records (id, name string)</li>
+ * <li>sellers: 32-byte records (id, name string, email string, birth date as
+ * epoch day, base salary, department id, padding) in the order they were
+ * written, normally the name order of {@code findAll()}</li>
+ * <li>id index: 8-byte (seller id, record number) pairs sorted by id, for
+ * binary search</li>
+ * <li>string table: the offsets of every distinct string followed by their
+ * UTF-8 bytes; records refer to strings by number, -1 for null</li>
+ * </ul>
+ *
+ * {@link #open(Path)} maps the file with {@link FileChannel#map}, so opening is
+ * immediate regardless of its size and records are decoded only when read.
+ * {@link #write(Path, Collection, List)} builds the file under a temporary name
+ * and renames it into place, so readers never see a half-written snapshot.
+ */
+public final class SellerSnapshot {
+
+    private static final int MAGIC = 0x534C5253; // "SLRS"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int DEPARTMENT_RECORD = 8;
+    private static final int SELLER_RECORD = 32;
+    private static final int INDEX_ENTRY = 8;
+    private static final int NULL_STRING = -1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long createdAt;
+    private final int departmentCount;
+    private final int sellerCount;
+    private final int departmentsOffset;
+    private final int sellersOffset;
+    private final int idIndexOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    // Department names, small enough to decode once
+    private final Map<Integer, String> departmentNames = new HashMap<>();
+
+    private SellerSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new DbException("Not a seller snapshot file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new DbException("Unsupported seller snapshot version " + buffer.getInt(4));
+        }
+        this.createdAt = buffer.getLong(8);
+        this.departmentCount = buffer.getInt(16);
+        this.sellerCount = buffer.getInt(20);
+        int stringCount = buffer.getInt(24);
+        this.departmentsOffset = (int) buffer.getLong(32);
+        this.sellersOffset = (int) buffer.getLong(40);
+        this.idIndexOffset = (int) buffer.getLong(48);
+        this.stringOffsetsOffset = (int) buffer.getLong(56);
+        this.stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+
+        for (int i = 0; i < departmentCount; i++) {
+            int pos = departmentsOffset + i * DEPARTMENT_RECORD;
+            departmentNames.put(buffer.getInt(pos), string(buffer.getInt(pos + 4)));
+        }
+    }
+
+    /**
+     * Maps an existing snapshot file.
+     *
+     * @param file The snapshot file.
+     * @return The snapshot.
+     * @throws DbException If the file cannot be read or is not a snapshot.
+     */
+    public static SellerSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new SellerSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new DbException("Could not open seller snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given departments and sellers, replacing the file
+     * atomically.
+     *
+     * @param file        The snapshot file.
+     * @param departments Every department.
+     * @param sellers     Every seller, in the order {@link #findAll} should
+     *                    return them.
+     * @throws DbException If the file cannot be written.
+     */
+    public static void write(Path file, Collection<Department> departments, List<Seller> sellers) {
+
+        // Distinct strings in first-seen order
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] departmentNameRefs = new int[departments.size()];
+        int i = 0;
+        for (Department dep : departments) {
+            departmentNameRefs[i++] = intern(dep.getName(), stringIds, strings);
+        }
+        int[] nameRefs = new int[sellers.size()];
+        int[] emailRefs = new int[sellers.size()];
+        for (i = 0; i < sellers.size(); i++) {
+            nameRefs[i] = intern(sellers.get(i).getName(), stringIds, strings);
+            emailRefs[i] = intern(sellers.get(i).getEmail(), stringIds, strings);
+        }
+
+        long stringBytes = 0;
+        for (byte[] s : strings) {
+            stringBytes += s.length;
+        }
+
+        long departmentsOffset = HEADER_SIZE;
+        long sellersOffset = departmentsOffset + (long) departments.size() * DEPARTMENT_RECORD;
+        long idIndexOffset = sellersOffset + (long) sellers.size() * SELLER_RECORD;
+        long stringsOffset = idIndexOffset + (long) sellers.size() * INDEX_ENTRY;
+        long size = stringsOffset + (strings.size() + 1L) * 4 + stringBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new DbException("Seller snapshot would exceed 2 GB: " + size + " bytes");
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+                out.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                        .putInt(departments.size()).putInt(sellers.size()).putInt(strings.size()).putInt(0)
+                        .putLong(departmentsOffset).putLong(sellersOffset).putLong(idIndexOffset)
+                        .putLong(stringsOffset);
+
+                i = 0;
+                for (Department dep : departments) {
+                    out.putInt(dep.getId()).putInt(departmentNameRefs[i++]);
+                }
+
+                long[] idIndex = new long[sellers.size()];
+                for (i = 0; i < sellers.size(); i++) {
+                    Seller obj = sellers.get(i);
+                    out.putInt(obj.getId())
+                            .putInt(nameRefs[i])
+                            .putInt(emailRefs[i])
+                            .putInt(epochDay(obj.getBirthDate()))
+                            .putDouble(obj.getBaseSalary() == null ? 0.0 : obj.getBaseSalary())
+                            .putInt(obj.getDepartment() == null ? 0 : obj.getDepartment().getId())
+                            .putInt(0);
+                    // Id in the high half, record number in the low half: sorting the longs sorts by id
+                    idIndex[i] = ((long) obj.getId() << 32) | i;
+                }
+                Arrays.sort(idIndex);
+                for (long entry : idIndex) {
+                    out.putInt((int) (entry >> 32)).putInt((int) entry);
+                }
+
+                int offset = 0;
+                for (byte[] s : strings) {
+                    out.putInt(offset);
+                    offset += s.length;
+                }
+                out.putInt(offset);
+                for (byte[] s : strings) {
+                    out.put(s);
+                }
+
+                out.force();
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException e) {
+            throw new DbException("Could not write seller snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns when the snapshot was written, in epoch milliseconds.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int sellerCount() {
+        return sellerCount;
+    }
+
+    public int departmentCount() {
+        return departmentCount;
+    }
+
+    /**
+     * Returns every department of the snapshot, resolved through the identity
+     * map.
+     *
+     * @param departments The identity map.
+     * @return The departments.
+     */
+    public List<Department> departments(DepartmentIdentityMap departments) {
+        List<Department> list = new ArrayList<>(departmentCount);
+        for (int i = 0; i < departmentCount; i++) {
+            int id = buffer.getInt(departmentsOffset + i * DEPARTMENT_RECORD);
+            list.add(department(id, departments));
+        }
+        return list;
+    }
+
+    /**
+     * Looks a seller up by id with a binary search of the id index.
+     *
+     * @param id          The seller id.
+     * @param departments The identity map departments are resolved through.
+     * @return The seller, or null if the snapshot has no seller with this id.
+     */
+    public Seller findById(int id, DepartmentIdentityMap departments) {
+        int row = rowOf(id);
+        return row < 0 ? null : seller(row, departments);
+    }
+
+    /**
+     * Returns every seller in record order.
+     *
+     * @param departments The identity map departments are resolved through.
+     * @return The sellers.
+     */
+    public List<Seller> findAll(DepartmentIdentityMap departments) {
+        List<Seller> list = new ArrayList<>(sellerCount);
+        for (int row = 0; row < sellerCount; row++) {
+            list.add(seller(row, departments));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the sellers of a department in record order.
+     *
+     * @param departmentId The department id.
+     * @param departments  The identity map departments are resolved through.
+     * @return The sellers.
+     */
+    public List<Seller> findByDepartment(int departmentId, DepartmentIdentityMap departments) {
+        List<Seller> list = new ArrayList<>();
+        for (int row = 0; row < sellerCount; row++) {
+            if (buffer.getInt(sellersOffset + row * SELLER_RECORD + 24) == departmentId) {
+                list.add(seller(row, departments));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Counts the sellers of a department without decoding any record.
+     *
+     * @param departmentId The department id.
+     * @return The number of sellers.
+     */
+    public int countByDepartment(int departmentId) {
+        int count = 0;
+        for (int row = 0; row < sellerCount; row++) {
+            if (buffer.getInt(sellersOffset + row * SELLER_RECORD + 24) == departmentId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the id, name and email of the sellers in record order.
+     *
+     * @param departmentId The department to filter on, or null for every seller.
+     * @return The summaries.
+     */
+    public List<SellerSummary> summaries(Integer departmentId) {
+        List<SellerSummary> list = new ArrayList<>();
+        for (int row = 0; row < sellerCount; row++) {
+            int pos = sellersOffset + row * SELLER_RECORD;
+            if (departmentId == null || buffer.getInt(pos + 24) == departmentId) {
+                list.add(new SellerSummary(buffer.getInt(pos), string(buffer.getInt(pos + 4)),
+                        string(buffer.getInt(pos + 8))));
+            }
+        }
+        return list;
+    }
+
+    private int rowOf(int id) {
+        int lo = 0;
+        int hi = sellerCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = buffer.getInt(idIndexOffset + mid * INDEX_ENTRY);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return buffer.getInt(idIndexOffset + mid * INDEX_ENTRY + 4);
+            }
+        }
+        return -1;
+    }
+
+    private Seller seller(int row, DepartmentIdentityMap departments) {
+        int pos = sellersOffset + row * SELLER_RECORD;
+        int day = buffer.getInt(pos + 12);
+        return new Seller(
+                buffer.getInt(pos),
+                string(buffer.getInt(pos + 4)),
+                string(buffer.getInt(pos + 8)),
+                day == NULL_DATE ? null : java.sql.Date.valueOf(LocalDate.ofEpochDay(day)),
+                buffer.getDouble(pos + 16),
+                department(buffer.getInt(pos + 24), departments));
+    }
+
+    /**
+     * Resolves a department of the snapshot through the identity map, or returns
+     * null for an id the snapshot has no department for (0 marks a seller saved
+     * without one), so no made-up name reaches the shared canonical instance.
+     */
+    private Department department(int id, DepartmentIdentityMap departments) {
+        if (!departmentNames.containsKey(id)) {
+            return null;
+        }
+        return departments.resolve(id, departmentNames.get(id));
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_STRING) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsOffset + ref * 4);
+        int end = buffer.getInt(stringOffsetsOffset + (ref + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataOffset + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> strings) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static int epochDay(Date date) {
+        if (date == null) {
+            return NULL_DATE;
+        }
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    @Override
+    public String toString() {
+        return "SellerSnapshot [sellers=" + sellerCount + ", departments=" + departmentCount + ", createdAt="
+                + createdAt + "]";
+    }
+}
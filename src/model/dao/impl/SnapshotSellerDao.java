@@ -0,0 +1,293 @@
+package model.dao.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import model.dao.DepartmentDao;
+import model.dao.Page;
+import model.dao.SellerColumn;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+import model.entities.SellerSummary;
+import model.entities.SellerTable;
+
+/**
+ * {@link SellerDao} that starts serving reads from a {@link SellerSnapshot}
+ * file right away and switches to the database once it has caught up.
+ *
+ * On creation the snapshot file, if there is one, is mapped and its departments
+ * are put in the department cache. A background thread then reads both tables
+ * from the database, writes a fresh snapshot for the next start and from then
+ * on every call goes to the database DAO.
+ *
+ * Until then {@code findById}, {@code findByIds}, {@code findAll},
+ * {@code findByDepartment}, {@code countByDepartment} and the summary finders
+ * are answered from the snapshot; the other reads always go to the database.
+ * Any write made through this DAO also stops serving from the snapshot, since
+ * it would no longer reflect the database.
+ */
+public class SnapshotSellerDao implements SellerDao, AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(SnapshotSellerDao.class.getName());
+
+    private final SellerDao delegate;
+    private final DepartmentDao departmentDao;
+    private final DepartmentIdentityMap departments;
+    private final Path file;
+    private final long retryMs;
+
+    private volatile SellerSnapshot snapshot;
+    private volatile boolean closed = false;
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+    private final Thread catchUp;
+
+    /**
+     * Creates the DAO and starts catching up in the background.
+     *
+     * @param delegate        The DAO reading and writing the database.
+     * @param departmentDao   The DAO the departments of a new snapshot are read
+     *                        with.
+     * @param departments     The identity map departments are resolved through.
+     * @param departmentCache The department cache to warm from the snapshot, or
+     *                        null.
+     * @param file            The snapshot file, read now and rewritten after
+     *                        catching up.
+     * @param retryMs         How long to wait before retrying a failed catch-up.
+     */
+    public SnapshotSellerDao(SellerDao delegate, DepartmentDao departmentDao, DepartmentIdentityMap departments,
+            CachingDepartmentDao departmentCache, Path file, long retryMs) {
+        this.delegate = delegate;
+        this.departmentDao = departmentDao;
+        this.departments = departments;
+        this.file = file;
+        this.retryMs = retryMs;
+
+        if (Files.exists(file)) {
+            try {
+                snapshot = SellerSnapshot.open(file);
+                if (departmentCache != null) {
+                    departmentCache.prime(snapshot.departments(departments));
+                }
+            } catch (RuntimeException e) {
+                // A corrupt or outdated snapshot only costs the warm start
+                log.log(Level.WARNING, "Ignoring seller snapshot " + file, e);
+                snapshot = null;
+            }
+        }
+
+        this.catchUp = new Thread(this::catchUp, "seller-snapshot-catch-up");
+        catchUp.setDaemon(true);
+        catchUp.start();
+    }
+
+    /**
+     * Returns whether reads are still answered from the snapshot.
+     */
+    public boolean isServingSnapshot() {
+        return snapshot != null;
+    }
+
+    /**
+     * Returns whether the DAO has caught up with the database.
+     */
+    public boolean isCaughtUp() {
+        return caughtUp.getCount() == 0;
+    }
+
+    /**
+     * Waits until the DAO has caught up with the database.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of {@code timeout}.
+     * @return Whether it caught up in time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitCaughtUp(long timeout, TimeUnit unit) throws InterruptedException {
+        return caughtUp.await(timeout, unit);
+    }
+
+    /**
+     * Stops catching up; the DAO keeps working against the database.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        catchUp.interrupt();
+        snapshot = null;
+    }
+
+    private void catchUp() {
+        while (!closed) {
+            try {
+                List<Department> allDepartments = departmentDao.findAll();
+                List<Seller> allSellers = delegate.findAll();
+                SellerSnapshot.write(file, allDepartments, allSellers);
+                snapshot = null;
+                caughtUp.countDown();
+                return;
+            } catch (RuntimeException e) {
+                // Keep serving the snapshot and try again rather than let the thread die
+                log.log(Level.WARNING, "Seller snapshot catch-up failed, retrying in " + retryMs + "ms", e);
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        SellerSnapshot s = snapshot;
+        if (s != null && id != null) {
+            return s.findById(id, departments);
+        }
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids) {
+        SellerSnapshot s = snapshot;
+        if (s == null) {
+            return delegate.findByIds(ids);
+        }
+        Map<Integer, Seller> result = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            if (id != null && !result.containsKey(id)) {
+                Seller obj = s.findById(id, departments);
+                if (obj != null) {
+                    result.put(id, obj);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Seller> findAll() {
+        SellerSnapshot s = snapshot;
+        return s != null ? s.findAll(departments) : delegate.findAll();
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department) {
+        SellerSnapshot s = snapshot;
+        return s != null ? s.findByDepartment(department.getId(), departments) : delegate.findByDepartment(department);
+    }
+
+    @Override
+    public int countByDepartment(Department department) {
+        SellerSnapshot s = snapshot;
+        return s != null ? s.countByDepartment(department.getId()) : delegate.countByDepartment(department);
+    }
+
+    @Override
+    public List<SellerSummary> findAllSummaries() {
+        SellerSnapshot s = snapshot;
+        return s != null ? s.summaries(null) : delegate.findAllSummaries();
+    }
+
+    @Override
+    public List<SellerSummary> findSummariesByDepartment(Department department) {
+        SellerSnapshot s = snapshot;
+        return s != null ? s.summaries(department.getId()) : delegate.findSummariesByDepartment(department);
+    }
+
+    @Override
+    public Stream<Seller> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public SellerTable findAllAsTable() {
+        return delegate.findAllAsTable();
+    }
+
+    @Override
+    public List<DepartmentSalaryStats> salaryStatsByDepartment() {
+        return delegate.salaryStatsByDepartment();
+    }
+
+    @Override
+    public Page<Seller> findPage(int pageSize, String continuationToken) {
+        return delegate.findPage(pageSize, continuationToken);
+    }
+
+    @Override
+    public Page<Seller> findPageByDepartment(Department department, int pageSize, String continuationToken) {
+        return delegate.findPageByDepartment(department, pageSize, continuationToken);
+    }
+
+    @Override
+    public List<Seller> findAll(Set<SellerColumn> columns) {
+        return delegate.findAll(columns);
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department, Set<SellerColumn> columns) {
+        return delegate.findByDepartment(department, columns);
+    }
+
+    // Writes go to the database and retire the snapshot, which no longer matches it
+
+    @Override
+    public void insert(Seller obj) {
+        snapshot = null;
+        delegate.insert(obj);
+    }
+
+    @Override
+    public void insertAll(Collection<Seller> list) {
+        snapshot = null;
+        delegate.insertAll(list);
+    }
+
+    @Override
+    public void update(Seller obj) {
+        snapshot = null;
+        delegate.update(obj);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        snapshot = null;
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public int adjustSalaryByDepartment(Department department, double factor) {
+        snapshot = null;
+        return delegate.adjustSalaryByDepartment(department, factor);
+    }
+
+    @Override
+    public int moveSellers(Department from, Department to) {
+        snapshot = null;
+        return delegate.moveSellers(from, to);
+    }
+
+    @Override
+    public int deleteByIds(Collection<Integer> ids) {
+        snapshot = null;
+        return delegate.deleteByIds(ids);
+    }
+
+    @Override
+    public boolean updateChanged(Seller original, Seller modified) {
+        snapshot = null;
+        return delegate.updateChanged(original, modified);
+    }
+}
@@ -0,0 +1,320 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import db.ReplicaDataSource;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Buffers seller and department writes and applies them together in one
+ * transaction.
+ *
+ * Nothing reaches the database until {@link #commit()}. The buffered writes are
+ * then grouped by statement and sent as JDBC batches of at most
+ * {@code batchSize} rows, in this order:
+ * <ol>
+ * <li>department inserts (so new sellers can point at new departments)</li>
+ * <li>seller inserts</li>
+ * <li>department updates</li>
+ * <li>seller updates</li>
+ * <li>seller deletes</li>
+ * <li>department deletes (after the sellers that referenced them)</li>
+ * </ol>
+ * and committed once. If any batch fails the whole transaction is rolled back,
+ * the ids written into inserted entities are reset to what they were before,
+ * and the failure is thrown as a {@link DbException}.
+ *
+ * Writes are not applied in the order they were made, only in the order above.
+ * An object registered twice is written once with its state at commit time, an
+ * update of an object that is also being inserted is folded into the insert,
+ * and an update of an id that is also being deleted is dropped.
+ *
+ * A unit of work is used by one thread and is closed after use:
+ *
+ * <pre>
+ * try (UnitOfWork uow = DaoFactory.beginUnitOfWork()) {
+ *     uow.insert(seller);
+ *     uow.update(otherSeller);
+ *     uow.deleteSeller(3);
+ *     uow.commit();
+ * }
+ * </pre>
+ *
+ * Closing a unit of work that was not committed discards its buffered writes.
+ *
+ * From the first registered write until {@link #close()} the thread runs in a
+ * write scope (see {@link ReplicaDataSource#beginWriteScope()}), so any DAO read
+ * it makes in between goes to the primary rather than to a replica. Closing is
+ * therefore mandatory, also after a commit: a unit of work left open keeps the
+ * thread, and whatever task a pooled thread runs next, reading from the
+ * primary.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private final DataSource dataSource;
+    private final SellerDaoJDBC sellerDao;
+    private final DepartmentDaoJDBC departmentDao;
+    private final DepartmentIdentityMap departments;
+    private final CachingDepartmentDao departmentCache;
+    private final int batchSize;
+
+    // Identity sets: the same entity registered twice is written once
+    private final Set<Seller> sellerInserts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Seller> sellerUpdates = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Integer> sellerDeletes = new LinkedHashSet<>();
+    private final Set<Department> departmentInserts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Department> departmentUpdates = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Integer> departmentDeletes = new LinkedHashSet<>();
+
+    // Registration order of the identity sets above, which do not keep one
+    private final List<Seller> sellerInsertOrder = new ArrayList<>();
+    private final List<Seller> sellerUpdateOrder = new ArrayList<>();
+    private final List<Department> departmentInsertOrder = new ArrayList<>();
+    private final List<Department> departmentUpdateOrder = new ArrayList<>();
+
+    private boolean finished = false;
+    private boolean scopeOpen = false;
+
+    /**
+     * Creates a unit of work.
+     *
+     * @param dataSource      The pool the transaction borrows its connection
+     *                        from.
+     * @param sellerDao       The DAO whose batch statements write sellers.
+     * @param departmentDao   The DAO whose batch statements write departments.
+     * @param departments     The identity map refreshed after the commit.
+     * @param departmentCache The department cache to invalidate after the
+     *                        commit, or null.
+     * @param batchSize       The maximum number of rows per JDBC batch.
+     */
+    public UnitOfWork(DataSource dataSource, SellerDaoJDBC sellerDao, DepartmentDaoJDBC departmentDao,
+            DepartmentIdentityMap departments, CachingDepartmentDao departmentCache, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.dataSource = dataSource;
+        this.sellerDao = sellerDao;
+        this.departmentDao = departmentDao;
+        this.departments = departments;
+        this.departmentCache = departmentCache;
+        this.batchSize = batchSize;
+    }
+
+    public void insert(Seller obj) {
+        register();
+        if (sellerInserts.add(obj)) {
+            sellerInsertOrder.add(obj);
+        }
+    }
+
+    public void update(Seller obj) {
+        register();
+        // A new seller is inserted with its state at commit time anyway
+        if (!sellerInserts.contains(obj) && sellerUpdates.add(obj)) {
+            sellerUpdateOrder.add(obj);
+        }
+    }
+
+    public void deleteSeller(Integer id) {
+        register();
+        sellerDeletes.add(id);
+    }
+
+    public void insert(Department obj) {
+        register();
+        if (departmentInserts.add(obj)) {
+            departmentInsertOrder.add(obj);
+        }
+    }
+
+    public void update(Department obj) {
+        register();
+        if (!departmentInserts.contains(obj) && departmentUpdates.add(obj)) {
+            departmentUpdateOrder.add(obj);
+        }
+    }
+
+    public void deleteDepartment(Integer id) {
+        register();
+        departmentDeletes.add(id);
+    }
+
+    /**
+     * Returns the number of writes buffered so far.
+     */
+    public int pendingWrites() {
+        return sellerInserts.size() + sellerUpdates.size() + sellerDeletes.size()
+                + departmentInserts.size() + departmentUpdates.size() + departmentDeletes.size();
+    }
+
+    /**
+     * Sends every buffered write as batches on one connection and commits them
+     * together. The unit of work cannot be used afterwards.
+     *
+     * @throws DbException If any batch fails; the transaction is rolled back
+     *                     and none of the writes is applied.
+     */
+    public void commit() {
+        checkOpen();
+        finished = true;
+
+        if (pendingWrites() == 0) {
+            return;
+        }
+
+        List<Seller> sellerUpdateList = new ArrayList<>();
+        for (Seller obj : sellerUpdateOrder) {
+            if (!sellerDeletes.contains(obj.getId())) {
+                sellerUpdateList.add(obj);
+            }
+        }
+        List<Department> departmentUpdateList = new ArrayList<>();
+        for (Department obj : departmentUpdateOrder) {
+            if (!departmentDeletes.contains(obj.getId())) {
+                departmentUpdateList.add(obj);
+            }
+        }
+        List<Integer> sellerDeleteList = new ArrayList<>(sellerDeletes);
+        List<Integer> departmentDeleteList = new ArrayList<>(departmentDeletes);
+
+        // The inserts write generated ids into the entities; a rollback has to undo that
+        List<Integer> departmentIdsBefore = new ArrayList<>(departmentInsertOrder.size());
+        for (Department obj : departmentInsertOrder) {
+            departmentIdsBefore.add(obj.getId());
+        }
+        List<Integer> sellerIdsBefore = new ArrayList<>(sellerInsertOrder.size());
+        for (Seller obj : sellerInsertOrder) {
+            sellerIdsBefore.add(obj.getId());
+        }
+
+        Connection conn = null;
+
+        try {
+            // Borrow one connection for the whole transaction
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+
+            try {
+                for (List<Department> chunk : chunks(departmentInsertOrder)) {
+                    departmentDao.insertBatch(conn, chunk);
+                }
+                for (List<Seller> chunk : chunks(sellerInsertOrder)) {
+                    sellerDao.insertBatch(conn, chunk);
+                }
+                for (List<Department> chunk : chunks(departmentUpdateList)) {
+                    departmentDao.updateBatch(conn, chunk);
+                }
+                for (List<Seller> chunk : chunks(sellerUpdateList)) {
+                    sellerDao.updateBatch(conn, chunk);
+                }
+                for (List<Integer> chunk : chunks(sellerDeleteList)) {
+                    sellerDao.deleteBatch(conn, chunk);
+                }
+                for (List<Integer> chunk : chunks(departmentDeleteList)) {
+                    departmentDao.deleteBatch(conn, chunk);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                rollback(conn, e);
+                for (int i = 0; i < departmentInsertOrder.size(); i++) {
+                    departmentInsertOrder.get(i).setId(departmentIdsBefore.get(i));
+                }
+                for (int i = 0; i < sellerInsertOrder.size(); i++) {
+                    sellerInsertOrder.get(i).setId(sellerIdsBefore.get(i));
+                }
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            // If an error occurs while executing the transaction, throw a custom exception
+            throw new DbException("Error executing unit of work: " + e.getMessage(), e);
+        } finally {
+            // Return the connection to the pool, which restores autocommit
+            DB.closeConnection(conn);
+        }
+
+        // Only now that the writes are durable, bring the in-memory views up to date
+        for (Department obj : departmentUpdateList) {
+            departments.resolve(obj.getId(), obj.getName());
+        }
+        for (Integer id : departmentDeleteList) {
+            departments.evict(id);
+        }
+        if (departmentCache != null) {
+            for (Department obj : departmentInsertOrder) {
+                departmentCache.invalidate(obj.getId());
+            }
+            for (Department obj : departmentUpdateList) {
+                departmentCache.invalidate(obj.getId());
+            }
+            for (Integer id : departmentDeleteList) {
+                departmentCache.invalidate(id);
+            }
+        }
+    }
+
+    /**
+     * Discards the buffered writes if {@link #commit()} was not called and ends
+     * the write scope. Must be called once the unit of work is done with, on the
+     * thread that used it.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        if (scopeOpen) {
+            scopeOpen = false;
+            ReplicaDataSource.endWriteScope();
+        }
+    }
+
+    /**
+     * Rolls the transaction back. A failing rollback is recorded on the failure
+     * that caused it instead of replacing it.
+     */
+    private static void rollback(Connection conn, Exception failure) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Checks the unit of work is still open and enters the write scope on the
+     * first registered write, so nothing is left to undo if the unit of work is
+     * never used.
+     */
+    private void register() {
+        checkOpen();
+        if (!scopeOpen) {
+            ReplicaDataSource.beginWriteScope();
+            scopeOpen = true;
+        }
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Unit of work has already been committed or closed");
+        }
+    }
+
+    private <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += batchSize) {
+            chunks.add(list.subList(from, Math.min(list.size(), from + batchSize)));
+        }
+        return chunks;
+    }
+}
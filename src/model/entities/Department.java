@@ -43,9 +43,8 @@ public class Department implements Serializable {
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
+        // instanceof rather than getClass(), so a LazyDepartment equals the Department of the same id
+        if (!(obj instanceof Department))
             return false;
         Department other = (Department) obj;
         if (id == null) {
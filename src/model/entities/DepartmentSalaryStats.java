@@ -0,0 +1,59 @@
+package model.entities;
+
+import java.io.Serializable;
+
+/**
+ * Headcount and base salary summary of one department, computed by the
+ * database.
+ */
+public class DepartmentSalaryStats implements Serializable {
+
+    private final Department department;
+    private final int headcount;
+    private final double totalSalary;
+    private final double averageSalary;
+    private final double minSalary;
+    private final double maxSalary;
+
+    public DepartmentSalaryStats(Department department, int headcount, double totalSalary, double averageSalary,
+            double minSalary, double maxSalary) {
+        this.department = department;
+        this.headcount = headcount;
+        this.totalSalary = totalSalary;
+        this.averageSalary = averageSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+    }
+
+    public Department getDepartment() {
+        return department;
+    }
+
+    public int getHeadcount() {
+        return headcount;
+    }
+
+    public double getTotalSalary() {
+        return totalSalary;
+    }
+
+    public double getAverageSalary() {
+        return averageSalary;
+    }
+
+    public double getMinSalary() {
+        return minSalary;
+    }
+
+    public double getMaxSalary() {
+        return maxSalary;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentSalaryStats [department=" + department + ", headcount=" + headcount + ", totalSalary="
+                + totalSalary + ", averageSalary=" + averageSalary + ", minSalary=" + minSalary + ", maxSalary="
+                + maxSalary + "]";
+    }
+
+}
@@ -0,0 +1,65 @@
+package model.entities;
+
+import java.util.function.Function;
+
+/**
+ * A department of which only the id is known until its name is first read.
+ *
+ * The first call to {@link #getName()} asks the loader for the full department
+ * and keeps its name; later calls return it directly. It equals any
+ * {@link Department} with the same id.
+ */
+public class LazyDepartment extends Department {
+
+    private transient Function<Integer, Department> loader;
+    private volatile boolean loaded;
+
+    /**
+     * Creates a lazily loaded department.
+     *
+     * @param id     The department id.
+     * @param loader Returns the department of an id, or null if it does not
+     *               exist; called at most once.
+     */
+    public LazyDepartment(Integer id, Function<Integer, Department> loader) {
+        super(id, null);
+        this.loader = loader;
+        this.loaded = loader == null;
+    }
+
+    @Override
+    public String getName() {
+        if (!loaded) {
+            load();
+        }
+        return super.getName();
+    }
+
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        loaded = true;
+    }
+
+    /**
+     * Returns whether the name has been loaded (or set) yet.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        Department dep = loader.apply(getId());
+        super.setName(dep == null ? null : dep.getName());
+        loader = null;
+        loaded = true;
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? super.toString() : "Department [id=" + getId() + ", name=(not loaded)]";
+    }
+}
@@ -0,0 +1,58 @@
+package model.entities;
+
+import java.io.Serializable;
+
+/**
+ * The id, name and email of a seller, read without the rest of the row or its
+ * department.
+ */
+public class SellerSummary implements Serializable {
+
+    private final Integer id;
+    private final String name;
+    private final String email;
+
+    public SellerSummary(Integer id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((id == null) ? 0 : id.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof SellerSummary))
+            return false;
+        SellerSummary other = (SellerSummary) obj;
+        if (id == null) {
+            return other.id == null;
+        }
+        return id.equals(other.id);
+    }
+
+    @Override
+    public String toString() {
+        return "SellerSummary [id=" + id + ", name=" + name + ", email=" + email + "]";
+    }
+}
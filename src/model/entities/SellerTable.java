@@ -0,0 +1,319 @@
+package model.entities;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Column-oriented, read-only copy of the seller table for analytical scans.
+ *
+ * Each attribute lives in its own primitive array indexed by row, so reading N
+ * sellers costs a handful of arrays instead of N Seller objects with boxed
+ * fields. Birth dates are stored as epoch days ({@link #NULL_DATE} when
+ * missing) and repeated seller and department names share one instance;
+ * emails are unique and kept as read. Department ids are also mapped to dense
+ * slots so per-department aggregates run as tight loops over arrays.
+ */
+public class SellerTable {
+
+    /**
+     * Epoch day stored for a seller without birth date.
+     */
+    public static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private final int size;
+    private final int[] ids;
+    private final String[] names;
+    private final String[] emails;
+    private final int[] birthDates;
+    private final double[] baseSalaries;
+    private final int[] departmentIds;
+
+    // Dense department numbering: departmentSlots[row] indexes slotDepartmentIds/slotDepartmentNames
+    private final int[] departmentSlots;
+    private final int[] slotDepartmentIds;
+    private final String[] slotDepartmentNames;
+
+    // Takes over the builder's column arrays, which may be longer than size
+    private SellerTable(Builder b) {
+        this.size = b.size;
+        this.ids = b.ids;
+        this.names = b.names;
+        this.emails = b.emails;
+        this.birthDates = b.birthDates;
+        this.baseSalaries = b.baseSalaries;
+        this.departmentIds = b.departmentIds;
+        this.departmentSlots = b.departmentSlots;
+        // Per-department arrays are small, trimmed so their length is the department count
+        this.slotDepartmentIds = Arrays.copyOf(b.slotDepartmentIds, b.slotCount);
+        this.slotDepartmentNames = Arrays.copyOf(b.slotDepartmentNames, b.slotCount);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public String getEmail(int row) {
+        return emails[row];
+    }
+
+    /**
+     * Returns the birth date of a row as an epoch day, or {@link #NULL_DATE}.
+     */
+    public int getBirthEpochDay(int row) {
+        return birthDates[row];
+    }
+
+    public LocalDate getBirthDate(int row) {
+        int day = birthDates[row];
+        return day == NULL_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    public double getBaseSalary(int row) {
+        return baseSalaries[row];
+    }
+
+    public int getDepartmentId(int row) {
+        return departmentIds[row];
+    }
+
+    public String getDepartmentName(int row) {
+        return slotDepartmentNames[departmentSlots[row]];
+    }
+
+    /**
+     * Returns the number of distinct departments in the table.
+     */
+    public int departmentCount() {
+        return slotDepartmentIds.length;
+    }
+
+    public double sumSalary() {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            sum += baseSalaries[i];
+        }
+        return sum;
+    }
+
+    public double averageSalary() {
+        return size == 0 ? 0.0 : sumSalary() / size;
+    }
+
+    public double minSalary() {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, baseSalaries[i]);
+        }
+        return size == 0 ? 0.0 : min;
+    }
+
+    public double maxSalary() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, baseSalaries[i]);
+        }
+        return size == 0 ? 0.0 : max;
+    }
+
+    /**
+     * Sums the base salaries of each department.
+     *
+     * @return Department id to total salary, in the order departments were first
+     *         seen.
+     */
+    public Map<Integer, Double> sumSalaryByDepartment() {
+        double[] sums = new double[slotDepartmentIds.length];
+        for (int i = 0; i < size; i++) {
+            sums[departmentSlots[i]] += baseSalaries[i];
+        }
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < sums.length; slot++) {
+            result.put(slotDepartmentIds[slot], sums[slot]);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the sellers of each department.
+     *
+     * @return Department id to headcount, in the order departments were first
+     *         seen.
+     */
+    public Map<Integer, Integer> countByDepartment() {
+        int[] counts = new int[slotDepartmentIds.length];
+        for (int i = 0; i < size; i++) {
+            counts[departmentSlots[i]]++;
+        }
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < counts.length; slot++) {
+            result.put(slotDepartmentIds[slot], counts[slot]);
+        }
+        return result;
+    }
+
+    /**
+     * Averages the base salaries of each department.
+     *
+     * @return Department id to average salary, in the order departments were
+     *         first seen.
+     */
+    public Map<Integer, Double> averageSalaryByDepartment() {
+        double[] sums = new double[slotDepartmentIds.length];
+        int[] counts = new int[slotDepartmentIds.length];
+        for (int i = 0; i < size; i++) {
+            int slot = departmentSlots[i];
+            sums[slot] += baseSalaries[i];
+            counts[slot]++;
+        }
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < sums.length; slot++) {
+            result.put(slotDepartmentIds[slot], sums[slot] / counts[slot]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SellerTable [size=" + size + ", departments=" + slotDepartmentIds.length + "]";
+    }
+
+    /**
+     * Appends rows into growable column arrays and builds an immutable table.
+     * The table takes the arrays over instead of copying them, so a builder can
+     * build only once.
+     */
+    public static class Builder {
+
+        private int size = 0;
+        private int[] ids;
+        private String[] names;
+        private String[] emails;
+        private int[] birthDates;
+        private double[] baseSalaries;
+        private int[] departmentIds;
+        private int[] departmentSlots;
+
+        private int slotCount = 0;
+        private int[] slotDepartmentIds = new int[8];
+        private String[] slotDepartmentNames = new String[8];
+        private final Map<Integer, Integer> slotByDepartmentId = new HashMap<>();
+
+        private final Map<String, String> strings = new HashMap<>();
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int initialCapacity) {
+            int capacity = Math.max(16, initialCapacity);
+            ids = new int[capacity];
+            names = new String[capacity];
+            emails = new String[capacity];
+            birthDates = new int[capacity];
+            baseSalaries = new double[capacity];
+            departmentIds = new int[capacity];
+            departmentSlots = new int[capacity];
+        }
+
+        /**
+         * Appends one seller row.
+         *
+         * @param id             The seller id.
+         * @param name           The seller name.
+         * @param email          The seller email.
+         * @param birthEpochDay  The birth date as an epoch day, or
+         *                       {@link SellerTable#NULL_DATE}.
+         * @param baseSalary     The base salary.
+         * @param departmentId   The department id.
+         * @param departmentName The department name.
+         * @return This builder.
+         */
+        public Builder add(int id, String name, String email, int birthEpochDay, double baseSalary,
+                int departmentId, String departmentName) {
+            if (ids == null) {
+                throw new IllegalStateException("The table has already been built");
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = id;
+            names[size] = intern(name);
+            emails[size] = email;
+            birthDates[size] = birthEpochDay;
+            baseSalaries[size] = baseSalary;
+            departmentIds[size] = departmentId;
+            departmentSlots[size] = slotOf(departmentId, departmentName);
+            size++;
+            return this;
+        }
+
+        /**
+         * Builds the table; the builder cannot be used afterwards.
+         *
+         * @return A table holding the rows added so far.
+         */
+        public SellerTable build() {
+            if (ids == null) {
+                throw new IllegalStateException("The table has already been built");
+            }
+            SellerTable table = new SellerTable(this);
+            ids = null;
+            names = null;
+            emails = null;
+            birthDates = null;
+            baseSalaries = null;
+            departmentIds = null;
+            departmentSlots = null;
+            return table;
+        }
+
+        private int slotOf(int departmentId, String departmentName) {
+            // Rows of one department tend to come in runs, check the last slot first
+            if (size > 0 && slotDepartmentIds[departmentSlots[size - 1]] == departmentId) {
+                return departmentSlots[size - 1];
+            }
+            Integer slot = slotByDepartmentId.get(departmentId);
+            if (slot != null) {
+                return slot;
+            }
+            if (slotCount == slotDepartmentIds.length) {
+                slotDepartmentIds = Arrays.copyOf(slotDepartmentIds, slotCount * 2);
+                slotDepartmentNames = Arrays.copyOf(slotDepartmentNames, slotCount * 2);
+            }
+            slotDepartmentIds[slotCount] = departmentId;
+            slotDepartmentNames[slotCount] = intern(departmentName);
+            slotByDepartmentId.put(departmentId, slotCount);
+            return slotCount++;
+        }
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String existing = strings.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            emails = Arrays.copyOf(emails, capacity);
+            birthDates = Arrays.copyOf(birthDates, capacity);
+            baseSalaries = Arrays.copyOf(baseSalaries, capacity);
+            departmentIds = Arrays.copyOf(departmentIds, capacity);
+            departmentSlots = Arrays.copyOf(departmentSlots, capacity);
+        }
+    }
+}